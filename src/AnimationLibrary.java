@@ -0,0 +1,42 @@
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class AnimationLibrary {
+    private static final Map<String, BufferedImage[]> animations = new ConcurrentHashMap<>();
+    
+    public static BufferedImage[] walkFrames(int skinId) {
+        return frames("walk", skinId, "skins-sheet2", 0);
+    }
+    
+    public static BufferedImage[] attackFrames(int skinId) {
+        if (skinId == 1) {
+            return frames("attack", skinId, "skins-sheet2", 0, 1, 2, 3, 3, 3);
+        }
+        return frames("attack", skinId, "skins-sheet2", 0, 1, 2, 3, 4, 4, 4, 4, 4, 4, 4);
+    }
+    
+    public static BufferedImage[] particleFrames(int skinId) {
+        if (skinId == 1) {
+            return frames("particle", skinId, "ranged_particles-sheet0", 0, 1, 2, 3);
+        }
+        return frames("particle", skinId, "ranged_particles-sheet0", 0, 1, 2);
+    }
+    
+    private static BufferedImage[] frames(String name, int skinId, String sheet, int... indices) {
+        String skinPath = skinId == 1 ? "assets/player/skin_1/" : "assets/player/skin_2/";
+        String key = skinPath + name;
+        BufferedImage[] frames = animations.get(key);
+        if (frames == null) {
+            frames = new BufferedImage[indices.length];
+            for (int i = 0; i < indices.length; i++) {
+                frames[i] = SpriteCache.get(skinPath + sheet + "-" + indices[i] + ".png");
+            }
+            BufferedImage[] existing = animations.putIfAbsent(key, frames);
+            if (existing != null) {
+                frames = existing;
+            }
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,244 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.sound.sampled.*;
+
+public class AudioMixer {
+    public static final int PRIORITY_LOW = 0;
+    public static final int PRIORITY_NORMAL = 1;
+    public static final int PRIORITY_HIGH = 2;
+    
+    static final AudioFormat FORMAT = new AudioFormat(44100, 16, 2, true, false);
+    private static final int CHUNK_FRAMES = 256;
+    
+    private static final Map<String, short[]> samples = new ConcurrentHashMap<>();
+    private static final Voice[] voices = new Voice[Config.AUDIO_MAX_VOICES];
+    private static final int[] mixBuffer = new int[CHUNK_FRAMES * 2];
+    private static int nextVoiceId = 1;
+    private static long voiceOrder = 0;
+    private static long stolenVoices = 0;
+    private static Thread mixerThread;
+    private static boolean available = true;
+    
+    static {
+        for (int i = 0; i < voices.length; i++) {
+            voices[i] = new Voice();
+        }
+    }
+    
+    private static class Voice {
+        short[] data;
+        int position;
+        float gain;
+        int priority;
+        boolean looping;
+        int id;
+        long order;
+    }
+    
+    public static void preload(String... paths) {
+        for (String path : paths) {
+            load(path);
+        }
+    }
+    
+    public static int play(String path, float gain, int priority) {
+        return start(path, gain, priority, false);
+    }
+    
+    public static int loop(String path, float gain, int priority) {
+        return start(path, gain, priority, true);
+    }
+    
+    private static int start(String path, float gain, int priority, boolean looping) {
+        short[] data = load(path);
+        if (data == null || data.length == 0 || !ensureStarted()) {
+            return 0;
+        }
+        synchronized(voices) {
+            Voice voice = null;
+            for (Voice candidate : voices) {
+                if (candidate.data == null) {
+                    voice = candidate;
+                    break;
+                }
+                if (voice == null || candidate.priority < voice.priority
+                        || (candidate.priority == voice.priority && candidate.order < voice.order)) {
+                    voice = candidate;
+                }
+            }
+            if (voice.data != null) {
+                if (voice.priority > priority) {
+                    return 0;
+                }
+                stolenVoices++;
+            }
+            voice.data = data;
+            voice.position = 0;
+            voice.gain = gain;
+            voice.priority = priority;
+            voice.looping = looping;
+            voice.id = nextVoiceId++;
+            voice.order = voiceOrder++;
+            return voice.id;
+        }
+    }
+    
+    public static void stop(int voiceId) {
+        if (voiceId == 0) {
+            return;
+        }
+        synchronized(voices) {
+            for (Voice voice : voices) {
+                if (voice.id == voiceId) {
+                    voice.data = null;
+                    voice.id = 0;
+                }
+            }
+        }
+    }
+    
+    public static boolean isPlaying(int voiceId) {
+        if (voiceId == 0) {
+            return false;
+        }
+        synchronized(voices) {
+            for (Voice voice : voices) {
+                if (voice.id == voiceId) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    public static int getActiveVoices() {
+        int active = 0;
+        synchronized(voices) {
+            for (Voice voice : voices) {
+                if (voice.data != null) {
+                    active++;
+                }
+            }
+        }
+        return active;
+    }
+    
+    public static long getStolenVoices() {
+        synchronized(voices) {
+            return stolenVoices;
+        }
+    }
+    
+    static short[] load(String path) {
+        short[] data = samples.get(path);
+        if (data != null) {
+            return data;
+        }
+        synchronized(samples) {
+            data = samples.get(path);
+            if (data == null) {
+                data = decode(path);
+                if (data != null) {
+                    samples.put(path, data);
+                }
+            }
+            return data;
+        }
+    }
+    
+    private static short[] decode(String path) {
+        try (AudioInputStream source = AudioSystem.getAudioInputStream(new File(path))) {
+            AudioFormat sourceFormat = source.getFormat();
+            int channels = sourceFormat.getChannels();
+            AudioFormat pcmFormat = new AudioFormat(sourceFormat.getSampleRate(), 16, channels, true, false);
+            byte[] bytes;
+            try (AudioInputStream pcm = AudioSystem.getAudioInputStream(pcmFormat, source)) {
+                bytes = pcm.readAllBytes();
+            }
+            
+            int sourceFrames = bytes.length / (2 * channels);
+            double step = sourceFormat.getSampleRate() / FORMAT.getSampleRate();
+            int frames = (int) (sourceFrames / step);
+            short[] data = new short[frames * 2];
+            for (int i = 0; i < frames; i++) {
+                int frame = Math.min(sourceFrames - 1, (int) (i * step));
+                int offset = frame * 2 * channels;
+                short left = (short) ((bytes[offset] & 0xFF) | (bytes[offset + 1] << 8));
+                short right = left;
+                if (channels > 1) {
+                    right = (short) ((bytes[offset + 2] & 0xFF) | (bytes[offset + 3] << 8));
+                }
+                data[i * 2] = left;
+                data[i * 2 + 1] = right;
+            }
+            return data;
+        } catch (IOException | UnsupportedAudioFileException | IllegalArgumentException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+    
+    private static synchronized boolean ensureStarted() {
+        if (mixerThread != null || !available) {
+            return available;
+        }
+        SourceDataLine line;
+        try {
+            line = AudioSystem.getSourceDataLine(FORMAT);
+            int bufferBytes = (int) (FORMAT.getSampleRate() * Config.AUDIO_LATENCY / 1000) * FORMAT.getFrameSize();
+            line.open(FORMAT, bufferBytes);
+            line.start();
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            e.printStackTrace();
+            available = false;
+            return false;
+        }
+        
+        mixerThread = new Thread(() -> {
+            byte[] out = new byte[CHUNK_FRAMES * FORMAT.getFrameSize()];
+            while (true) {
+                mix(out, CHUNK_FRAMES);
+                line.write(out, 0, out.length);
+            }
+        }, "AudioMixer");
+        mixerThread.setDaemon(true);
+        mixerThread.start();
+        return true;
+    }
+    
+    static void mix(byte[] out, int frames) {
+        int samplesToMix = frames * 2;
+        Arrays.fill(mixBuffer, 0, samplesToMix, 0);
+        synchronized(voices) {
+            for (Voice voice : voices) {
+                short[] data = voice.data;
+                if (data == null) {
+                    continue;
+                }
+                float gain = voice.gain;
+                int position = voice.position;
+                for (int i = 0; i < samplesToMix; i++) {
+                    if (position >= data.length) {
+                        if (!voice.looping) {
+                            voice.data = null;
+                            voice.id = 0;
+                            break;
+                        }
+                        position = 0;
+                    }
+                    mixBuffer[i] += (int) (data[position++] * gain);
+                }
+                voice.position = position;
+            }
+        }
+        
+        for (int i = 0; i < samplesToMix; i++) {
+            int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mixBuffer[i]));
+            out[i * 2] = (byte) sample;
+            out[i * 2 + 1] = (byte) (sample >> 8);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class BinaryProtocol {
+    public static final int PROTOCOL_TEXT = 1;
+    public static final int PROTOCOL_BINARY = 2;
+    public static final int PROTOCOL_BINARY_UDP = 3;
+    
+    public static final byte MSG_SNAPSHOT = 1;
+    public static final byte MSG_ATTACK = 2;
+    public static final byte MSG_STATE = 3;
+    public static final byte MSG_ACK = 4;
+    public static final byte MSG_UDP_HELLO = 5;
+    public static final byte MSG_INPUT = 6;
+    public static final byte MSG_INPUT_ACK = 7;
+    
+    public static final int FLAG_ATTACKING = 1;
+    public static final int FLAG_DASHING = 2;
+    
+    public static final int LENGTH_SIZE = 4;
+    public static final int MAX_FRAME_SIZE = 1 << 20;
+    public static final int MAX_PLAYER_ID = 0xFFFF;
+    public static final int MAX_NAME_BYTES = 255;
+    public static final int MAX_PLAYER_RECORD_SIZE = 25 + MAX_NAME_BYTES;
+    public static final int STATE_FRAME_SIZE = LENGTH_SIZE + 1 + 19;
+    public static final int ATTACK_FRAME_SIZE = LENGTH_SIZE + 1 + 7;
+    public static final int ACK_FRAME_SIZE = LENGTH_SIZE + 1 + 4;
+    public static final int DATAGRAM_HEADER_SIZE = 2 + 4 + 4;
+    public static final int INPUT_RUN_SIZE = 1 + 2 + 2 + 1;
+    public static final int MAX_INPUT_FRAME_SIZE = LENGTH_SIZE + 1 + 4 + 4 + 1 + Config.MAX_INPUTS_PER_PACKET * INPUT_RUN_SIZE;
+    public static final int INPUT_ACK_FRAME_SIZE = LENGTH_SIZE + 1 + 4 + PlayerMotion.STATE_SIZE;
+    
+    private static final double POSITION_SCALE = 10.0;
+    private static final double ANGLE_SCALE = 65536.0 / (2 * Math.PI);
+    
+    public static int beginFrame(ByteBuffer buffer, byte type) {
+        int frameStart = buffer.position();
+        buffer.putInt(0);
+        buffer.put(type);
+        return frameStart;
+    }
+    
+    public static void endFrame(ByteBuffer buffer, int frameStart) {
+        buffer.putInt(frameStart, buffer.position() - frameStart - LENGTH_SIZE);
+    }
+    
+    public static int quantizePosition(double value) {
+        return (int) Math.max(0, Math.min(0xFFFF, Math.round(value * POSITION_SCALE)));
+    }
+    
+    public static double dequantizePosition(int value) {
+        return value / POSITION_SCALE;
+    }
+    
+    public static int quantizeAngle(double angle) {
+        return (short) Math.round(angle * ANGLE_SCALE);
+    }
+    
+    public static double dequantizeAngle(int value) {
+        return value / ANGLE_SCALE;
+    }
+    
+    public static void putPosition(ByteBuffer buffer, double value) {
+        buffer.putShort((short) quantizePosition(value));
+    }
+    
+    public static double getPosition(ByteBuffer buffer) {
+        return dequantizePosition(buffer.getShort() & 0xFFFF);
+    }
+    
+    public static void putAngle(ByteBuffer buffer, double angle) {
+        buffer.putShort((short) quantizeAngle(angle));
+    }
+    
+    public static double getAngle(ByteBuffer buffer) {
+        return dequantizeAngle(buffer.getShort());
+    }
+    
+    public static byte[] encodeName(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        return bytes.length <= MAX_NAME_BYTES ? bytes : java.util.Arrays.copyOf(bytes, MAX_NAME_BYTES);
+    }
+    
+    public static void putName(ByteBuffer buffer, byte[] nameBytes) {
+        buffer.put((byte) nameBytes.length);
+        buffer.put(nameBytes);
+    }
+    
+    public static String getName(ByteBuffer buffer) {
+        int length = buffer.get() & 0xFF;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    public static int flags(boolean isAttacking, boolean isDashing) {
+        return (isAttacking ? FLAG_ATTACKING : 0) | (isDashing ? FLAG_DASHING : 0);
+    }
+    
+    public static void putState(ByteBuffer buffer, double x, double y, double angle, boolean isAttacking, long lastAttackTime, int health, int killCount, boolean isDashing) {
+        int frameStart = beginFrame(buffer, MSG_STATE);
+        putPosition(buffer, x);
+        putPosition(buffer, y);
+        putAngle(buffer, angle);
+        buffer.put((byte) flags(isAttacking, isDashing));
+        buffer.putLong(lastAttackTime);
+        buffer.putShort((short) health);
+        buffer.putShort((short) killCount);
+        endFrame(buffer, frameStart);
+    }
+    
+    public static void putAttack(ByteBuffer buffer, double x, double y, double angle, int skinId) {
+        int frameStart = beginFrame(buffer, MSG_ATTACK);
+        putPosition(buffer, x);
+        putPosition(buffer, y);
+        putAngle(buffer, angle);
+        buffer.put((byte) skinId);
+        endFrame(buffer, frameStart);
+    }
+    
+    public static void putAck(ByteBuffer buffer, int snapshotSeq) {
+        int frameStart = beginFrame(buffer, MSG_ACK);
+        buffer.putInt(snapshotSeq);
+        endFrame(buffer, frameStart);
+    }
+    
+    public static void putInputAck(ByteBuffer buffer, int inputSeq, PlayerMotion motion) {
+        int frameStart = beginFrame(buffer, MSG_INPUT_ACK);
+        buffer.putInt(inputSeq);
+        motion.put(buffer);
+        endFrame(buffer, frameStart);
+    }
+    
+    public static void putDatagramHeader(ByteBuffer buffer, int playerId, int token, int seq) {
+        buffer.putShort((short) playerId);
+        buffer.putInt(token);
+        buffer.putInt(seq);
+    }
+    
+    public static void putHello(ByteBuffer buffer) {
+        int frameStart = beginFrame(buffer, MSG_UDP_HELLO);
+        endFrame(buffer, frameStart);
+    }
+    
+    public static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            line.write(b);
+        }
+        if (b == -1 && line.size() == 0) {
+            return null;
+        }
+        byte[] bytes = line.toByteArray();
+        int length = bytes.length;
+        if (length > 0 && bytes[length - 1] == '\r') {
+            length--;
+        }
+        return new String(bytes, 0, length);
+    }
+}
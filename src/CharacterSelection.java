@@ -32,8 +32,8 @@ public class CharacterSelection extends JPanel {
     private void loadImages() {
         try {
             skinImages = new BufferedImage[2];
-            skinImages[0] = ImageIO.read(new File("assets/player/skin_1/skins-sheet2-0.png"));
-            skinImages[1] = ImageIO.read(new File("assets/player/skin_2/skins-sheet2-0.png"));
+            skinImages[0] = AnimationLibrary.walkFrames(1)[0];
+            skinImages[1] = AnimationLibrary.walkFrames(2)[0];
             
             backgroundImage = ImageIO.read(new File("assets/ui/window.png"));
             prevButtonImage = ImageIO.read(new File("assets/ui/buttonarrow-sheet0.png"));
@@ -29,6 +29,42 @@ public class Config {
     public static final int SERVER_PORT = 7777;             
     public static final String SERVER_IP = "localhost";      
     public static final int NETWORK_UPDATE_RATE = 22;        
+    public static final boolean USE_BINARY_PROTOCOL = true;  // false = ใช้ข้อความแบบเดิมไว้ debug
+    public static final boolean USE_UDP = true;              // ส่ง state ผ่าน UDP ส่วน event ยังใช้ TCP
+    public static final boolean SERVER_UDP_ENABLED = true;
+    public static final int MAX_DATAGRAM_SIZE = 1200;        // snapshot ที่ใหญ่กว่านี้ส่งผ่าน TCP
+    public static final long UDP_TIMEOUT = 2000;             // ไม่ได้รับ UDP นานเท่านี้ให้กลับไปใช้ TCP
+    public static final boolean SERVER_USE_NIO = true;       // ใช้ Selector แทน thread ต่อ client
+    public static final int SERVER_IO_THREADS = 2;           // จำนวน I/O thread ของเซิร์ฟเวอร์
+    public static final int SERVER_TICK_RATE = 30;           // จำนวน tick ต่อวินาทีของเซิร์ฟเวอร์
+    public static final long SERVER_TICK_REPORT_INTERVAL = 10000;
+    public static final boolean CLIENT_PREDICTION = true;    // client ทำนายการเดินเองและส่งแค่ input แทน state (binary เท่านั้น)
+    public static final int INPUT_HISTORY_SIZE = 128;        // input ที่เก็บไว้เล่นซ้ำตอนเซิร์ฟเวอร์แก้ตำแหน่ง
+    public static final int MAX_INPUTS_PER_PACKET = 32;
+    public static final int MAX_INPUTS_PER_TICK = 4;         // กันเร่งความเร็วด้วยการส่ง input รัวๆ
+    public static final long MAX_LAG_COMPENSATION = 300;     // ย้อนตำแหน่งเป้าหมายได้ไม่เกินนี้ตอนเช็คโดน (ms)
+    public static final int OUTBOUND_QUEUE_CAPACITY = 64;    // ข้อความที่ค้างส่งได้สูงสุดต่อ client
+    public static final OutboundQueue.OverflowPolicy OUTBOUND_OVERFLOW_POLICY = OutboundQueue.OverflowPolicy.COALESCE;
+    public static final long OUTBOUND_CLOSE_TIMEOUT = 500;   // รอส่งข้อความที่เหลือก่อนปิด socket
+    public static final long DUPLICATE_CONNECTION_WINDOW = 5000; // กันเชื่อมต่อซ้ำจาก ip+ชื่อเดิม
+    public static final int RECENT_CONNECTIONS_MAX = 10000;
+    public static final boolean INTEREST_MANAGEMENT = false; // ปิดไว้เพราะหน้าจอเห็นทั้งแมพ เปิดเมื่อแมพใหญ่กว่าหน้าจอ
+    public static final double INTEREST_RADIUS = 600;        // ระยะที่ client จะเห็นผู้เล่นอื่นเมื่อเปิด INTEREST_MANAGEMENT
+    public static final double INTEREST_LEAVE_MARGIN = 150;  // กันผู้เล่นกระพริบตรงขอบระยะ
+    public static final long INTERPOLATION_DELAY = 100;      // แสดงผู้เล่นอื่นย้อนหลังเท่านี้ (ms)
+    public static final long MAX_EXTRAPOLATION = 200;        // เดาตำแหน่งต่อได้ไม่เกินนี้เมื่อ snapshot ขาด
+    public static final boolean INTERPOLATION_HERMITE = true; // false = linear
+    public static final int INTERPOLATION_BUFFER_SIZE = 32;
+    public static final int SPRITE_ROTATION_BUCKETS = 64;     // จำนวนมุมที่หมุนภาพเตรียมไว้ล่วงหน้า
+    public static final long SPRITE_CACHE_MAX_BYTES = 64L * 1024 * 1024; // หน่วยความจำสูงสุดของภาพที่หมุนไว้
+    public static final boolean ACTIVE_RENDERING = true;      // วาดเองบน Canvas ด้วย render thread, false = Swing Timer + repaint
+    public static final int RENDER_BUFFERS = 3;               // 2 = double buffering, 3 = triple buffering
+    public static final int RENDER_FPS = 0;                   // 0 = ตามรีเฟรชเรทของจอ, จำลองเกมยังเดินที่ FPS เสมอ
+    public static final int MAX_SIMULATION_STEPS = 5;         // จำลองตามหลังได้ไม่เกินนี้ต่อเฟรม ที่เหลือทิ้งไป
+    public static final boolean VOLATILE_BACKGROUND = true;   // เก็บพื้นหลังไว้ใน VolatileImage, false = compatible image
+    public static final int AUDIO_MAX_VOICES = 16;            // เสียงที่เล่นพร้อมกันได้ เกินแล้วแย่งเสียงที่สำคัญน้อยกว่า
+    public static final long AUDIO_LATENCY = 50;              // ขนาดบัฟเฟอร์ของ line เสียง (ms)
+    public static final long MUSIC_BUFFER = 250;              // เพลงพื้นหลังอ่านไฟล์ทีละส่วน บัฟเฟอร์เท่านี้ (ms)
     
 
     public static final double BOB_SPEED = 0.3;                 
@@ -0,0 +1,104 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FrameArena {
+    private final int chunkSize;
+    private final int maxChunks;
+    private final List<Chunk> chunks = new ArrayList<>();
+    private Chunk chunk;
+    private Lease lease;
+    
+    private static class Chunk {
+        final ByteBuffer buffer;
+        final AtomicInteger leases = new AtomicInteger();
+        
+        Chunk(int size) {
+            this.buffer = ByteBuffer.allocateDirect(size);
+        }
+    }
+    
+    public static class Lease {
+        private final AtomicInteger refs = new AtomicInteger(1);
+        private final List<Chunk> touched = new ArrayList<>(2);
+        
+        private void touch(Chunk chunk) {
+            chunk.leases.incrementAndGet();
+            touched.add(chunk);
+        }
+        
+        public void retain() {
+            refs.incrementAndGet();
+        }
+        
+        public void release() {
+            if (refs.decrementAndGet() == 0) {
+                for (Chunk chunk : touched) {
+                    chunk.leases.decrementAndGet();
+                }
+            }
+        }
+    }
+    
+    public FrameArena(int chunkSize, int maxChunks) {
+        this.chunkSize = chunkSize;
+        this.maxChunks = maxChunks;
+    }
+    
+    public Lease begin() {
+        lease = new Lease();
+        if (chunk != null) {
+            lease.touch(chunk);
+        }
+        return lease;
+    }
+    
+    public void end() {
+        lease.release();
+        lease = null;
+    }
+    
+    public ByteBuffer reserve(int maxSize) {
+        if (lease == null) {
+            throw new IllegalStateException("reserve outside begin/end");
+        }
+        if (chunk == null || chunk.buffer.remaining() < maxSize) {
+            chunk = nextChunk(maxSize);
+            lease.touch(chunk);
+        }
+        ByteBuffer buffer = chunk.buffer.duplicate();
+        buffer.limit(chunk.buffer.position() + maxSize);
+        return buffer;
+    }
+    
+    public ByteBuffer commit(ByteBuffer buffer) {
+        ByteBuffer frame = chunk.buffer.duplicate();
+        frame.limit(buffer.position());
+        chunk.buffer.position(buffer.position());
+        return frame.slice().asReadOnlyBuffer();
+    }
+    
+    public ByteBuffer copyOf(byte[] bytes, int length) {
+        ByteBuffer buffer = reserve(length);
+        buffer.put(bytes, 0, length);
+        return commit(buffer);
+    }
+    
+    private Chunk nextChunk(int maxSize) {
+        if (maxSize > chunkSize) {
+            return new Chunk(maxSize);
+        }
+        for (Chunk candidate : chunks) {
+            if (candidate.leases.get() == 0) {
+                candidate.buffer.clear();
+                return candidate;
+            }
+        }
+        Chunk created = new Chunk(chunkSize);
+        if (chunks.size() < maxChunks) {
+            chunks.add(created);
+        }
+        return created;
+    }
+}
@@ -1,15 +1,45 @@
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 public class GameServer {
+    private static final int SNAPSHOT_ARENA_SIZE = 256 * 1024;
+    private static final int SNAPSHOT_ARENA_CHUNKS = 4;
+    private static final byte[] PLAYERS_PREFIX = "PLAYERS:".getBytes();
+    private static final int POSITION_HISTORY_DEPTH = (int) (Config.SERVER_TICK_RATE * Config.MAX_LAG_COMPENSATION / 1000) + 2;
+    private static final double REWIND_SLACK = Config.PLAYER_SPEED * Config.FPS * Config.MAX_LAG_COMPENSATION / 1000 + Config.DASH_DISTANCE;
+    
     private int port;
-    private boolean running;
+    private volatile boolean running;
     private ServerSocket serverSocket;
-    private HashMap<Integer, PlayerData> players;
-    private HashMap<Integer, ClientHandler> connectedClients;
-    private HashMap<String, Long> recentConnections;
-    private int nextPlayerId = 1;
+    private final PlayerRegistry registry = new PlayerRegistry(BinaryProtocol.MAX_PLAYER_ID);
+    private final Queue<ClientSession> pendingLeaves = new ConcurrentLinkedQueue<>();
+    private RecentConnections recentConnections;
+    private final Queue<PlayerInput> pendingInputs = new ConcurrentLinkedQueue<>();
+    private long tickCount = 0;
+    private long tickOverruns = 0;
+    private long skippedTicks = 0;
+    private long maxTickNanos = 0;
+    private SnapshotCodec.Snapshot lastSnapshot;
+    private int snapshotSeq = 0;
+    private final long startTime = System.currentTimeMillis();
+    private long snapshotBytesSent = 0;
+    private long snapshotBytesSaved = 0;
+    private final SpatialGrid spatialGrid;
+    private final PlayerStore playerStore = new PlayerStore(BinaryProtocol.MAX_PLAYER_ID, 64);
+    private final TextEncoder textEncoder = new TextEncoder(4096);
+    private final SecureRandom tokenRandom = new SecureRandom();
+    private UdpTransport udpTransport;
+    private int[] nearbyIds = new int[16];
+    private final PlayerMotion motion = new PlayerMotion();
+    private final PositionHistory positionHistory = new PositionHistory(POSITION_HISTORY_DEPTH, 64);
+    private final FrameArena frameArena = new FrameArena(SNAPSHOT_ARENA_SIZE, SNAPSHOT_ARENA_CHUNKS);
+    private static final AtomicLong slowClientsEvicted = new AtomicLong();
     
     public static class PlayerData {
         public int id;
@@ -35,48 +65,410 @@ public class GameServer {
             this.killCount = 0;
         }
         
+        public void set(PlayerData other) {
+            id = other.id;
+            x = other.x;
+            y = other.y;
+            angle = other.angle;
+            isAttacking = other.isAttacking;
+            isDashing = other.isDashing;
+            skinId = other.skinId;
+            name = other.name;
+            health = other.health;
+            killCount = other.killCount;
+            lastAttackTime = other.lastAttackTime;
+        }
+        
         @Override
         public String toString() {
-            System.out.println("debug: " + String.format("%d:%d:%.1f:%.1f:%.1f:%s:%d:%s:%d:%d:%s", 
-                id, skinId, x, y, angle, isAttacking ? "1" : "0", lastAttackTime, name, health, killCount, isDashing ? "1" : "0"));
-            return String.format("%d:%d:%.1f:%.1f:%.1f:%s:%d:%s:%d:%d:%s", 
-                id, skinId, x, y, angle, isAttacking ? "1" : "0", lastAttackTime, name, health, killCount, isDashing ? "1" : "0");
+            return new TextEncoder(64).putPlayer(id, skinId, x, y, angle, isAttacking, lastAttackTime,
+                String.valueOf(name).getBytes(), health, killCount, isDashing).toString();
         }
         
         public long lastAttackTime = 0;
     }
     
+    static abstract class ClientSession {
+        PlayerData playerData;
+        int playerId;
+        boolean binary;
+        volatile int ackedSnapshot;
+        final SnapshotCodec.Snapshot[] sentSnapshots = new SnapshotCodec.Snapshot[SnapshotCodec.HISTORY_SIZE];
+        final InterestSet interest = new InterestSet();
+        int udpToken;
+        volatile SocketAddress udpAddress;
+        volatile long lastUdpReceiveTime;
+        int lastUdpSeq;
+        int slot = -1;
+        int inputBudget;
+        int sentInputAck;
+        volatile boolean inputCommands;
+        final OutboundQueue outbound = new OutboundQueue(Config.OUTBOUND_QUEUE_CAPACITY, Config.OUTBOUND_OVERFLOW_POLICY);
+        
+        abstract void onOutboundReady();
+        
+        abstract void evict();
+        
+        abstract String getHostAddress();
+        
+        void write(ByteBuffer data) {
+            enqueue(data, null, false);
+        }
+        
+        void write(ByteBuffer data, FrameArena.Lease lease) {
+            enqueue(data, lease, false);
+        }
+        
+        void writeSnapshot(ByteBuffer data, FrameArena.Lease lease) {
+            enqueue(data, lease, true);
+        }
+        
+        void send(String message) {
+            write(ByteBuffer.wrap((message + "\n").getBytes()));
+        }
+        
+        private void enqueue(ByteBuffer data, FrameArena.Lease lease, boolean snapshot) {
+            if (outbound.offer(data, snapshot, lease)) {
+                onOutboundReady();
+            } else {
+                System.out.println("Evicting slow client: " + (playerData != null ? playerData.name : getHostAddress()));
+                slowClientsEvicted.incrementAndGet();
+                outbound.clear();
+                outbound.close();
+                evict();
+            }
+        }
+    }
+    
+    private static class PlayerInput {
+        final ClientSession session;
+        double x, y, angle;
+        boolean isAttacking;
+        long lastAttackTime;
+        int health;
+        int killCount;
+        boolean hasDashFlag;
+        boolean isDashing;
+        int inputSeq;
+        int viewTime;
+        byte[] commands;
+        int commandCount;
+        
+        PlayerInput(ClientSession session) {
+            this.session = session;
+        }
+    }
+    
     public GameServer(int port) {
         this.port = port;
-        this.players = new HashMap<>();
-        this.connectedClients = new HashMap<>();
-        this.recentConnections = new HashMap<>();
+        this.recentConnections = new RecentConnections(Config.DUPLICATE_CONNECTION_WINDOW, Config.RECENT_CONNECTIONS_MAX);
+        this.spatialGrid = new SpatialGrid(Config.MAP_WIDTH, Config.MAP_HEIGHT,
+            Math.max(Config.PLAYER_SIZE, Config.ATTACK_RANGE), BinaryProtocol.MAX_PLAYER_ID);
     }
     
     public void start() {
+        running = true;
+        Thread tickThread = new Thread(this::runTickLoop, "server-tick");
+        tickThread.setDaemon(true);
+        tickThread.start();
+        
+        if (Config.SERVER_UDP_ENABLED) {
+            try {
+                udpTransport = new UdpTransport(this, port);
+                udpTransport.start();
+            } catch (IOException e) {
+                System.out.println("UDP disabled: " + e.getMessage());
+                udpTransport = null;
+            }
+        }
+        
+        if (Config.SERVER_USE_NIO) {
+            try {
+                new NioServer(this, port, Config.SERVER_IO_THREADS).start();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+        
         try {
             serverSocket = new ServerSocket(port);
-            running = true;
             System.out.println("Server started on port " + port);
             
             while (running) {
                 Socket clientSocket = serverSocket.accept();
                 ClientHandler handler = new ClientHandler(clientSocket);
-                connectedClients.put(nextPlayerId, handler);
-                handler.start();
+                new Thread(handler).start();
             }
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
     
-    private class ClientHandler extends Thread {
+    public boolean isRunning() {
+        return running;
+    }
+    
+    public long getTickCount() {
+        return tickCount;
+    }
+    
+    public long getTickOverruns() {
+        return tickOverruns;
+    }
+    
+    public long getSkippedTicks() {
+        return skippedTicks;
+    }
+    
+    public long getSnapshotBytesSaved() {
+        return snapshotBytesSaved;
+    }
+    
+    private void runTickLoop() {
+        long tickNanos = 1_000_000_000L / Config.SERVER_TICK_RATE;
+        long nextTick = System.nanoTime();
+        long lastReportTime = System.currentTimeMillis();
+        long reportedOverruns = 0;
+        long reportedSnapshotBytes = 0;
+        long reportedOutboundLoss = 0;
+        long reportedInterestChanges = 0;
+        
+        while (running) {
+            long tickStart = System.nanoTime();
+            try {
+                tick();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            long tickDuration = System.nanoTime() - tickStart;
+            
+            tickCount++;
+            maxTickNanos = Math.max(maxTickNanos, tickDuration);
+            if (tickDuration > tickNanos) {
+                tickOverruns++;
+            }
+            
+            nextTick += tickNanos;
+            long sleepNanos = nextTick - System.nanoTime();
+            if (sleepNanos > 0) {
+                LockSupport.parkNanos(sleepNanos);
+            } else if (-sleepNanos >= tickNanos) {
+                long behind = -sleepNanos / tickNanos;
+                skippedTicks += behind;
+                nextTick += behind * tickNanos;
+            }
+            
+            long now = System.currentTimeMillis();
+            if (now - lastReportTime >= Config.SERVER_TICK_REPORT_INTERVAL) {
+                if (tickOverruns > reportedOverruns) {
+                    System.out.println(String.format("Server falling behind: %d/%d ticks over %.1f ms budget, %d skipped, max tick %.2f ms",
+                        tickOverruns - reportedOverruns, tickCount, tickNanos / 1_000_000.0, skippedTicks, maxTickNanos / 1_000_000.0));
+                    reportedOverruns = tickOverruns;
+                }
+                if (snapshotBytesSent > reportedSnapshotBytes) {
+                    System.out.println(String.format("Delta snapshots: %d KB sent, %d KB saved vs full snapshots (%.0f%%)",
+                        snapshotBytesSent / 1024, snapshotBytesSaved / 1024,
+                        100.0 * snapshotBytesSaved / (snapshotBytesSent + snapshotBytesSaved)));
+                    reportedSnapshotBytes = snapshotBytesSent;
+                }
+                if (Config.INTEREST_MANAGEMENT) {
+                    reportedInterestChanges = reportInterest(reportedInterestChanges);
+                }
+                reportedOutboundLoss = reportOutboundQueues(reportedOutboundLoss);
+                lastReportTime = now;
+            }
+        }
+    }
+    
+    private long reportInterest(long reportedChanges) {
+        long enters = 0;
+        long leaves = 0;
+        int clients = 0;
+        for (ClientSession session : registry.sessions()) {
+            enters += session.interest.getEnters();
+            leaves += session.interest.getLeaves();
+            clients++;
+        }
+        long changes = enters + leaves;
+        if (changes != reportedChanges) {
+            System.out.println(String.format("Interest sets: %d enters, %d leaves across %d clients (radius %.0f)",
+                enters, leaves, clients, Config.INTEREST_RADIUS));
+        }
+        return changes;
+    }
+    
+    private long reportOutboundQueues(long reportedLoss) {
+        int depth = 0;
+        int maxDepth = 0;
+        long dropped = 0;
+        long coalesced = 0;
+        for (ClientSession session : registry.sessions()) {
+            depth = Math.max(depth, session.outbound.size());
+            maxDepth = Math.max(maxDepth, session.outbound.getMaxDepth());
+            dropped += session.outbound.getDropped();
+            coalesced += session.outbound.getCoalesced();
+        }
+        long evicted = slowClientsEvicted.get();
+        long loss = dropped + coalesced + evicted;
+        if (loss > reportedLoss) {
+            System.out.println(String.format("Outbound queues: depth %d (max %d), %d snapshots coalesced, %d messages dropped, %d slow clients evicted",
+                depth, maxDepth, coalesced, dropped, evicted));
+        }
+        return loss;
+    }
+    
+    private void tick() {
+        ClientSession left;
+        while ((left = pendingLeaves.poll()) != null) {
+            if (left.slot >= 0) {
+                playerStore.remove(left.slot);
+                left.slot = -1;
+                if (playerStore.slotOf(left.playerId) < 0) {
+                    spatialGrid.remove(left.playerId);
+                }
+            }
+        }
+        for (ClientSession session : registry.sessions()) {
+            if (session.slot < 0) {
+                addToStore(session);
+            }
+            session.inputBudget = Config.MAX_INPUTS_PER_TICK;
+        }
+        
+        PlayerInput input;
+        while ((input = pendingInputs.poll()) != null) {
+            applyInput(input);
+        }
+        
+        if (playerStore.size() == 0) {
+            return;
+        }
+        updateAttacksAndRespawns();
+        recordPositions();
+        checkCombatAndUpdateKills();
+        broadcastPlayers();
+    }
+    
+    private void addToStore(ClientSession session) {
+        session.slot = playerStore.add(session.playerData);
+        positionHistory.clear(session.slot);
+        spatialGrid.update(session.playerId, session.playerData.x, session.playerData.y);
+    }
+    
+    private void applyInput(PlayerInput input) {
+        ClientSession session = input.session;
+        if (session.playerData == null || registry.get(session.playerId) != session) {
+            return;
+        }
+        if (session.slot < 0) {
+            addToStore(session);
+        }
+        int slot = session.slot;
+        if (input.commands != null) {
+            applyCommands(session, slot, input);
+            return;
+        }
+        
+        if (playerStore.inputSeq[slot] > 0) {
+            return;
+        }
+        playerStore.x[slot] = input.x;
+        playerStore.y[slot] = input.y;
+        spatialGrid.update(session.playerId, input.x, input.y);
+        playerStore.angle[slot] = input.angle;
+        boolean dashing = input.hasDashFlag ? input.isDashing : playerStore.isDashing(slot);
+        playerStore.flags[slot] = (byte) BinaryProtocol.flags(input.isAttacking, dashing);
+        playerStore.lastAttackTime[slot] = input.lastAttackTime;
+        playerStore.health[slot] = input.health;
+        playerStore.killCount[slot] = input.killCount;
+    }
+    
+    private void applyCommands(ClientSession session, int slot, PlayerInput input) {
+        ByteBuffer runs = ByteBuffer.wrap(input.commands);
+        int processed = playerStore.inputSeq[slot];
+        boolean attacking = playerStore.isAttacking(slot);
+        motion.load(playerStore, slot);
+        int seq = input.inputSeq - input.commandCount + 1;
+        while (runs.hasRemaining() && session.inputBudget > 0) {
+            int repeat = runs.get() & 0xFF;
+            int targetX = runs.getShort() & 0xFFFF;
+            int targetY = runs.getShort() & 0xFFFF;
+            int buttons = runs.get();
+            for (int r = 0; r < repeat && session.inputBudget > 0; r++, seq++) {
+                if (seq <= processed) {
+                    continue;
+                }
+                processed = seq;
+                session.inputBudget--;
+                if (playerStore.health[slot] <= 0) {
+                    continue;
+                }
+                motion.step(targetX, targetY, buttons);
+                if ((buttons & PlayerMotion.BUTTON_ATTACK) != 0
+                        && PlayerMotion.attackReady(seq, playerStore.attackSeq[slot])) {
+                    long currentTime = System.currentTimeMillis();
+                    playerStore.attackSeq[slot] = seq;
+                    playerStore.lastAttackTime[slot] = currentTime;
+                    playerStore.viewLag[slot] = viewLag(input, seq, currentTime);
+                    attacking = true;
+                    broadcastAttackEvent(motion.x, motion.y, motion.angle, playerStore.skinIds[slot]);
+                }
+            }
+        }
+        motion.store(playerStore, slot);
+        playerStore.inputSeq[slot] = processed;
+        playerStore.flags[slot] = (byte) BinaryProtocol.flags(attacking, motion.isDashing());
+        spatialGrid.update(session.playerId, motion.x, motion.y);
+    }
+    
+    private void updateAttacksAndRespawns() {
+        long currentTime = System.currentTimeMillis();
+        for (int slot = 0; slot < playerStore.getHighWater(); slot++) {
+            if (!playerStore.isActive(slot) || playerStore.inputSeq[slot] == 0) {
+                continue;
+            }
+            if (playerStore.isAttacking(slot)
+                    && currentTime - playerStore.lastAttackTime[slot] >= attackDuration(playerStore.skinIds[slot])) {
+                playerStore.flags[slot] &= ~BinaryProtocol.FLAG_ATTACKING;
+            }
+            if (playerStore.health[slot] <= 0 && currentTime - playerStore.deathTime[slot] >= Config.RESPAWN_TIME) {
+                playerStore.health[slot] = Config.MAX_HEALTH;
+                motion.load(playerStore, slot);
+                motion.reset(Config.MAP_WIDTH / 2, Config.MAP_HEIGHT / 2);
+                motion.store(playerStore, slot);
+                spatialGrid.update(playerStore.ids[slot], motion.x, motion.y);
+            }
+        }
+    }
+    
+    private int viewLag(PlayerInput input, int seq, long currentTime) {
+        if (input.viewTime == 0) {
+            return 0;
+        }
+        long viewed = startTime + input.viewTime - (input.inputSeq - seq) * 1000L / Config.FPS;
+        return (int) Math.max(0, Math.min(Config.MAX_LAG_COMPENSATION, currentTime - viewed));
+    }
+    
+    private void recordPositions() {
+        long currentTime = System.currentTimeMillis();
+        for (int slot = 0; slot < playerStore.getHighWater(); slot++) {
+            if (playerStore.isActive(slot)) {
+                positionHistory.record(slot, currentTime, playerStore.x[slot], playerStore.y[slot]);
+            }
+        }
+    }
+    
+    private static long attackDuration(int skinId) {
+        return (skinId == 1 ? 6 : 11) * Config.ATTACK_ANIMATION_DELAY;
+    }
+    
+    private class ClientHandler extends ClientSession implements Runnable {
         private Socket clientSocket;
-        private PrintWriter out;
-        private BufferedReader in;
-        private PlayerData playerData;
-        private int playerId;
-        private long lastBroadcastTime = 0;
+        private OutputStream out;
+        private InputStream in;
+        private Thread writerThread;
+        private byte[] writeScratch = new byte[4096];
         
         public ClientHandler(Socket socket) {
             this.clientSocket = socket;
@@ -85,64 +477,46 @@ public class GameServer {
         @Override
         public void run() {
             try {
-                out = new PrintWriter(clientSocket.getOutputStream(), true);
-                in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
+                out = new BufferedOutputStream(clientSocket.getOutputStream());
+                in = new BufferedInputStream(clientSocket.getInputStream());
+                writerThread = new Thread(this::runWriter, "client-writer");
+                writerThread.setDaemon(true);
+                writerThread.start();
                 
-                String playerInfo = in.readLine();
-                String[] parts = playerInfo.split(":");
-                if (parts.length >= 3) {
-                    int skinId = Integer.parseInt(parts[0]);
-                    String playerName = parts.length > 2 ? parts[2] : "Player";
-                    
-                    String clientKey = clientSocket.getInetAddress().getHostAddress() + ":" + playerName;
-                    long currentTime = System.currentTimeMillis();
-                    
-                    synchronized(recentConnections) {
-                        if (recentConnections.containsKey(clientKey)) {
-                            long lastConnection = recentConnections.get(clientKey);
-                            if (currentTime - lastConnection < 5000) {
-                                System.out.println("Rejecting duplicate connection from " + clientKey);
-                                out.println("DUPLICATE");
-                                return;
-                            }
+                if (handleHandshake(this, BinaryProtocol.readLine(in)) == null) {
+                    return;
+                }
+                
+                if (binary) {
+                    DataInputStream dataIn = new DataInputStream(in);
+                    while (!clientSocket.isClosed()) {
+                        int length = dataIn.readInt();
+                        if (length <= 0 || length > BinaryProtocol.MAX_FRAME_SIZE) {
+                            break;
                         }
-                        recentConnections.put(clientKey, currentTime);
+                        byte[] frame = new byte[length];
+                        dataIn.readFully(frame);
+                        handleClientFrame(this, ByteBuffer.wrap(frame));
                     }
-                    
-                    playerId = nextPlayerId++;
-                    playerData = new PlayerData(playerId, 
-                        Config.MAP_WIDTH / 2,
-                        Config.MAP_HEIGHT / 2,
-                        skinId, playerName);
-                    
-                    synchronized(players) {
-                        players.put(playerData.id, playerData);
-                        connectedClients.put(playerId, this);
-                        
-                        out.println(playerData.id);
-                        broadcastPlayers();
+                } else {
+                    BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+                    String inputLine;
+                    while ((inputLine = reader.readLine()) != null && !clientSocket.isClosed()) {
+                        handleClientMessage(this, inputLine);
                     }
                 }
                 
-                String inputLine;
-                while ((inputLine = in.readLine()) != null && !clientSocket.isClosed()) {
-                    handleClientMessage(inputLine);
-                }
-                
             } catch (IOException e) {
                 System.out.println("Client disconnected: " + (playerData != null ? playerData.name : "Unknown"));
             } finally {
-                synchronized(players) {
-                    if (playerData != null) {
-                        System.out.println("Removing player " + playerData.name + " (ID: " + playerData.id + ") from game");
-                        players.remove(playerData.id);
-                        broadcastPlayers();
-                        System.out.println("Players remaining: " + players.size());
+                handleDisconnect(this);
+                outbound.close();
+                if (writerThread != null) {
+                    try {
+                        writerThread.join(Config.OUTBOUND_CLOSE_TIMEOUT);
+                    } catch (InterruptedException e) {
                     }
                 }
-                synchronized(connectedClients) {
-                    connectedClients.remove(playerId);
-                }
                 try {
                     if (!clientSocket.isClosed()) {
                         clientSocket.close();
@@ -152,121 +526,456 @@ public class GameServer {
             }
         }
         
-        private void handleClientMessage(String message) {
-            if (message.startsWith("ATTACK:")) {
-                handleAttackEvent(message);
-            } else {
-                String[] parts = message.split(":");
-                if (parts.length >= 7 && playerData != null) {
-                    try {
-                        playerData.x = Double.parseDouble(parts[0]);
-                        playerData.y = Double.parseDouble(parts[1]);
-                        playerData.angle = Double.parseDouble(parts[2]);
-                        playerData.isAttacking = "1".equals(parts[3]);
-                        playerData.lastAttackTime = Long.parseLong(parts[4]);
-                        playerData.health = Integer.parseInt(parts[5]);
-                        
-                        if (parts.length >= 7) {
-                            playerData.killCount = Integer.parseInt(parts[6]);
-                        }
-                        
-                        if (parts.length >= 8) {
-                            playerData.isDashing = "1".equals(parts[7]);
-                        }
-                        
-                        checkCombatAndUpdateKills();
-                        
-                        long currentTime = System.currentTimeMillis();
-                        if (currentTime - lastBroadcastTime > 50) {
-                            broadcastPlayers();
-                            lastBroadcastTime = currentTime;
+        private void runWriter() {
+            try {
+                ByteBuffer data;
+                while ((data = outbound.take()) != null) {
+                    if (data.hasArray()) {
+                        out.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+                    } else {
+                        int length = data.remaining();
+                        if (writeScratch.length < length) {
+                            writeScratch = new byte[Math.max(length, writeScratch.length * 2)];
                         }
-                    } catch (NumberFormatException e) {
-                        e.printStackTrace();
+                        data.duplicate().get(writeScratch, 0, length);
+                        out.write(writeScratch, 0, length);
+                    }
+                    outbound.sent();
+                    if (outbound.isEmpty()) {
+                        out.flush();
                     }
                 }
+                out.flush();
+            } catch (IOException | InterruptedException e) {
+                evict();
+            } finally {
+                outbound.clear();
+                outbound.releaseInFlight();
             }
         }
         
-        private void handleAttackEvent(String message) {
+        @Override
+        void onOutboundReady() {
+        }
+        
+        @Override
+        void evict() {
+            try {
+                clientSocket.close();
+            } catch (IOException e) {
+            }
+        }
+        
+        @Override
+        String getHostAddress() {
+            return clientSocket.getInetAddress().getHostAddress();
+        }
+    }
+    
+    PlayerData handleHandshake(ClientSession session, String playerInfo) {
+        if (playerInfo == null) {
+            return null;
+        }
+        String[] parts = playerInfo.split(":");
+        if (parts.length < 3) {
+            return null;
+        }
+        
+        int skinId;
+        int protocol;
+        try {
+            skinId = Integer.parseInt(parts[0]);
+            protocol = Integer.parseInt(parts[1]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        String playerName = parts.length > 2 ? parts[2] : "Player";
+        
+        String clientKey = session.getHostAddress() + ":" + playerName;
+        long currentTime = System.currentTimeMillis();
+        
+        synchronized(recentConnections) {
+            if (recentConnections.isRecent(clientKey, currentTime)) {
+                System.out.println("Rejecting duplicate connection from " + clientKey);
+                session.send("DUPLICATE");
+                return null;
+            }
+            recentConnections.record(clientKey, currentTime);
+        }
+        
+        boolean binary = protocol == BinaryProtocol.PROTOCOL_BINARY || protocol == BinaryProtocol.PROTOCOL_BINARY_UDP;
+        session.playerData = new PlayerData(0, 
+            Config.MAP_WIDTH / 2,
+            Config.MAP_HEIGHT / 2,
+            skinId, playerName);
+        boolean udp = binary && protocol == BinaryProtocol.PROTOCOL_BINARY_UDP && udpTransport != null;
+        if (udp) {
+            session.udpToken = tokenRandom.nextInt();
+        }
+        
+        if (registry.reserve(session) == 0) {
+            System.out.println("Server full, rejecting " + clientKey);
+            session.playerData = null;
+            session.send("FULL");
+            return null;
+        }
+        session.binary = binary;
+        
+        if (udp) {
+            udpTransport.register(session);
+            session.send(session.playerData.id + ":" + BinaryProtocol.PROTOCOL_BINARY_UDP + ":" + session.udpToken);
+        } else if (session.binary) {
+            session.send(session.playerData.id + ":" + BinaryProtocol.PROTOCOL_BINARY);
+        } else {
+            session.send(String.valueOf(session.playerData.id));
+        }
+        registry.activate(session);
+        return session.playerData;
+    }
+    
+    void handleDisconnect(ClientSession session) {
+        if (session.playerData != null && registry.remove(session)) {
+            PlayerData playerData = session.playerData;
+            pendingLeaves.add(session);
+            System.out.println("Removing player " + playerData.name + " (ID: " + playerData.id + ") from game");
+            System.out.println("Players remaining: " + registry.size());
+        }
+        if (udpTransport != null) {
+            udpTransport.unregister(session);
+        }
+    }
+    
+    void handleClientMessage(ClientSession session, String message) {
+        PlayerData playerData = session.playerData;
+        if (message.startsWith("ATTACK:")) {
+            handleAttackEvent(message);
+        } else {
             String[] parts = message.split(":");
-            if (parts.length >= 5) {
+            if (parts.length >= 7 && playerData != null) {
                 try {
-                    String attackData = String.format("ATTACK:%s:%s:%s:%s", parts[1], parts[2], parts[3], parts[4]);
-                    broadcastAttackEvent(attackData);
-                } catch (Exception e) {
+                    PlayerInput input = new PlayerInput(session);
+                    input.x = Double.parseDouble(parts[0]);
+                    input.y = Double.parseDouble(parts[1]);
+                    input.angle = Double.parseDouble(parts[2]);
+                    input.isAttacking = "1".equals(parts[3]);
+                    input.lastAttackTime = Long.parseLong(parts[4]);
+                    input.health = Integer.parseInt(parts[5]);
+                    input.killCount = Integer.parseInt(parts[6]);
+                    
+                    if (parts.length >= 8) {
+                        input.hasDashFlag = true;
+                        input.isDashing = "1".equals(parts[7]);
+                    }
+                    
+                    pendingInputs.add(input);
+                } catch (NumberFormatException e) {
                     e.printStackTrace();
                 }
             }
         }
-        
-        private void broadcastAttackEvent(String attackData) {
-            for (java.util.Map.Entry<Integer, GameServer.ClientHandler> entry : connectedClients.entrySet()) {
-                GameServer.ClientHandler handler = entry.getValue();
-                try {
-                    if (handler != null && handler.out != null) {
-                        handler.out.println(attackData);
+    }
+    
+    void handleClientFrame(ClientSession session, ByteBuffer frame) {
+        try {
+            byte type = frame.get();
+            if (type == BinaryProtocol.MSG_STATE) {
+                if (session.playerData == null || session.inputCommands) {
+                    return;
+                }
+                PlayerInput input = new PlayerInput(session);
+                input.x = BinaryProtocol.getPosition(frame);
+                input.y = BinaryProtocol.getPosition(frame);
+                input.angle = BinaryProtocol.getAngle(frame);
+                int flags = frame.get();
+                input.isAttacking = (flags & BinaryProtocol.FLAG_ATTACKING) != 0;
+                input.hasDashFlag = true;
+                input.isDashing = (flags & BinaryProtocol.FLAG_DASHING) != 0;
+                input.lastAttackTime = frame.getLong();
+                input.health = frame.getShort();
+                input.killCount = frame.getShort() & 0xFFFF;
+                pendingInputs.add(input);
+            } else if (type == BinaryProtocol.MSG_INPUT) {
+                if (session.playerData == null) {
+                    return;
+                }
+                PlayerInput input = new PlayerInput(session);
+                input.inputSeq = frame.getInt();
+                input.viewTime = frame.getInt();
+                int runs = frame.get() & 0xFF;
+                input.commands = new byte[runs * BinaryProtocol.INPUT_RUN_SIZE];
+                frame.get(input.commands);
+                for (int i = 0; i < input.commands.length; i += BinaryProtocol.INPUT_RUN_SIZE) {
+                    input.commandCount += input.commands[i] & 0xFF;
+                }
+                if (input.commandCount == 0 || input.commandCount > Config.MAX_INPUTS_PER_PACKET
+                        || input.inputSeq < input.commandCount) {
+                    return;
+                }
+                session.inputCommands = true;
+                pendingInputs.add(input);
+            } else if (type == BinaryProtocol.MSG_ACK) {
+                if (session.playerData == null) {
+                    return;
+                }
+                int seq = frame.getInt();
+                if (seq == 0 || seq > session.ackedSnapshot) {
+                    session.ackedSnapshot = seq;
+                }
+            } else if (type == BinaryProtocol.MSG_ATTACK && !session.inputCommands) {
+                if (session.playerData == null) {
+                    return;
+                }
+                double x = BinaryProtocol.getPosition(frame);
+                double y = BinaryProtocol.getPosition(frame);
+                double angle = BinaryProtocol.getAngle(frame);
+                int skinId = frame.get() & 0xFF;
+                broadcastAttackEvent(x, y, angle, skinId);
+            }
+        } catch (java.nio.BufferUnderflowException e) {
+            System.out.println("Malformed frame from player " + session.playerId);
+        }
+    }
+    
+    private void handleAttackEvent(String message) {
+        String[] parts = message.split(":");
+        if (parts.length >= 5) {
+            try {
+                broadcastAttackEvent(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]),
+                    Double.parseDouble(parts[3]), Integer.parseInt(parts[4]));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+    
+    private void broadcastAttackEvent(double x, double y, double angle, int skinId) {
+        ByteBuffer textEvent = null;
+        ByteBuffer binaryEvent = null;
+        for (ClientSession session : registry.sessions()) {
+            try {
+                if (session.binary) {
+                    if (binaryEvent == null) {
+                        binaryEvent = ByteBuffer.allocate(BinaryProtocol.ATTACK_FRAME_SIZE);
+                        BinaryProtocol.putAttack(binaryEvent, x, y, angle, skinId);
+                        binaryEvent.flip();
+                        binaryEvent = binaryEvent.asReadOnlyBuffer();
                     }
-                } catch (Exception e) {
+                    session.write(binaryEvent.duplicate());
+                } else {
+                    if (textEvent == null) {
+                        TextEncoder line = new TextEncoder(48).putAttack(x, y, angle, skinId).put('\n');
+                        textEvent = ByteBuffer.wrap(line.toByteArray()).asReadOnlyBuffer();
+                    }
+                    session.write(textEvent.duplicate());
                 }
+            } catch (RuntimeException e) {
+                dropSession(session, "attack event", e);
             }
         }
+    }
+    
+    private void checkCombatAndUpdateKills() {
+        long currentTime = System.currentTimeMillis();
+        double hitRangeSquared = (double) Config.PLAYER_SIZE * Config.PLAYER_SIZE;
+        if (nearbyIds.length < playerStore.size()) {
+            nearbyIds = new int[playerStore.size() * 2];
+        }
+        double[] x = playerStore.x;
+        double[] y = playerStore.y;
+        int[] health = playerStore.health;
         
-        private void checkCombatAndUpdateKills() {
-            synchronized(players) {
-                long currentTime = System.currentTimeMillis();
-                boolean hasChange = false;
+        for (int attacker = 0; attacker < playerStore.getHighWater(); attacker++) {
+            if (playerStore.isActive(attacker) && playerStore.isAttacking(attacker)
+                    && currentTime - playerStore.lastAttackTime[attacker] < Config.ATTACK_COOLDOWN) {
+                double attackX = x[attacker] + Math.cos(playerStore.angle[attacker]) * Config.ATTACK_RANGE;
+                double attackY = y[attacker] + Math.sin(playerStore.angle[attacker]) * Config.ATTACK_RANGE;
+                int viewLag = playerStore.viewLag[attacker];
+                long viewTime = currentTime - viewLag;
                 
-                for (PlayerData attacker : players.values()) {
-                    if (attacker.isAttacking && currentTime - attacker.lastAttackTime < Config.ATTACK_COOLDOWN) {
-                        double attackX = attacker.x + Math.cos(attacker.angle) * Config.ATTACK_RANGE;
-                        double attackY = attacker.y + Math.sin(attacker.angle) * Config.ATTACK_RANGE;
+                int nearbyCount = spatialGrid.query(attackX, attackY,
+                    viewLag > 0 ? Config.PLAYER_SIZE + REWIND_SLACK : Config.PLAYER_SIZE, nearbyIds);
+                for (int i = 0; i < nearbyCount; i++) {
+                    int target = playerStore.slotOf(nearbyIds[i]);
+                    if (target >= 0 && target != attacker && health[target] > 0) {
+                        double targetX = x[target];
+                        double targetY = y[target];
+                        if (viewLag > 0 && positionHistory.sample(target, viewTime)) {
+                            targetX = positionHistory.x;
+                            targetY = positionHistory.y;
+                        }
+                        double dx = attackX - targetX;
+                        double dy = attackY - targetY;
                         
-                        for (PlayerData target : players.values()) {
-                            if (attacker.id != target.id && target.health > 0) {
-                                double distance = Math.sqrt((attackX - target.x) * (attackX - target.x) + 
-                                                           (attackY - target.y) * (attackY - target.y));
-                                
-                                if (distance < Config.PLAYER_SIZE) {
-                                    target.health -= Config.ATTACK_DAMAGE;
-                                    if (target.health <= 0) {
-                                        target.health = 0;
-                                        attacker.killCount++;
-                                        attacker.health = Config.MAX_HEALTH;
-                                    }
-                                    hasChange = true;
-                                }
+                        if (dx * dx + dy * dy < hitRangeSquared) {
+                            health[target] -= Config.ATTACK_DAMAGE;
+                            if (playerStore.inputSeq[target] > 0) {
+                                motion.load(playerStore, target);
+                                motion.knockbackFrom(x[attacker], y[attacker], Config.KNOCKBACK_FORCE);
+                                motion.store(playerStore, target);
+                            }
+                            if (health[target] <= 0) {
+                                health[target] = 0;
+                                playerStore.deathTime[target] = currentTime;
+                                playerStore.killCount[attacker]++;
+                                health[attacker] = Config.MAX_HEALTH;
                             }
                         }
                     }
                 }
-                
             }
         }
+    }
+    
+    private void broadcastPlayers() {
+        ClientSession[] sessions = registry.sessions();
+        FrameArena.Lease lease = frameArena.begin();
+        try {
+            broadcastPlayers(sessions, lease);
+        } finally {
+            frameArena.end();
+        }
+    }
+    
+    private void broadcastPlayers(ClientSession[] sessions, FrameArena.Lease lease) {
+        ByteBuffer textSnapshot = null;
+        SnapshotCodec.Snapshot snapshot = null;
+        Map<SnapshotCodec.Snapshot, ByteBuffer> encodedDeltas = null;
         
-        private void broadcastPlayers() {
-            synchronized(players) {
-                StringBuilder playerList = new StringBuilder();
-                for (PlayerData player : players.values()) {
-                    if (playerList.length() > 0) {
-                        playerList.append(";");
-                    }
-                    playerList.append(player.toString());
+        for (ClientSession session : sessions) {
+            try {
+                InterestSet interest = session.interest;
+                boolean seesEveryone = true;
+                if (Config.INTEREST_MANAGEMENT) {
+                    interest.update(spatialGrid, session.playerId, playerStore.size(),
+                        Config.INTEREST_RADIUS, Config.INTEREST_RADIUS + Config.INTEREST_LEAVE_MARGIN);
+                    seesEveryone = interest.size() >= playerStore.size();
                 }
                 
-                String playerData = "PLAYERS:" + playerList.toString();
-                
-                for (java.util.Map.Entry<Integer, GameServer.ClientHandler> entry : connectedClients.entrySet()) {
-                    GameServer.ClientHandler handler = entry.getValue();
-                    try {
-                        if (handler != null && handler.out != null) {
-                            handler.out.println(playerData);
-                        }
-                    } catch (Exception e) {
-                        }
+                if (session.binary) {
+                    if (snapshot == null) {
+                        snapshot = captureSnapshot();
+                        encodedDeltas = new IdentityHashMap<>();
+                    }
+                    sendInputAck(session, lease);
+                    SnapshotCodec.Snapshot view = seesEveryone ? snapshot : snapshot.filter(interest.getIds(), interest.size());
+                    ByteBuffer frame = encodeDelta(session, view, seesEveryone ? encodedDeltas : null);
+                    if (udpTransport == null || !udpTransport.send(session, frame)) {
+                        session.writeSnapshot(frame.duplicate(), lease);
+                    }
+                } else if (seesEveryone) {
+                    if (textSnapshot == null) {
+                        textSnapshot = encodeTextSnapshot();
+                    }
+                    session.writeSnapshot(textSnapshot.duplicate(), lease);
+                } else {
+                    session.writeSnapshot(encodeTextSnapshot(interest), lease);
                 }
+            } catch (RuntimeException e) {
+                dropSession(session, "snapshot", e);
+            }
+        }
+    }
+    
+    private void dropSession(ClientSession session, String what, RuntimeException e) {
+        System.out.println("Failed to send " + what + " to " + (session.playerData != null ? session.playerData.name : session.getHostAddress()) + ", disconnecting");
+        e.printStackTrace();
+        session.outbound.clear();
+        session.outbound.close();
+        session.evict();
+    }
+    
+    private void sendInputAck(ClientSession session, FrameArena.Lease lease) {
+        int slot = session.slot;
+        if (slot < 0 || playerStore.inputSeq[slot] == session.sentInputAck) {
+            return;
+        }
+        session.sentInputAck = playerStore.inputSeq[slot];
+        motion.load(playerStore, slot);
+        ByteBuffer buffer = frameArena.reserve(BinaryProtocol.INPUT_ACK_FRAME_SIZE);
+        BinaryProtocol.putInputAck(buffer, session.sentInputAck, motion);
+        ByteBuffer frame = frameArena.commit(buffer);
+        if (udpTransport == null || !udpTransport.send(session, frame)) {
+            session.write(frame, lease);
+        }
+    }
+    
+    private SnapshotCodec.Snapshot captureSnapshot() {
+        snapshotSeq = snapshotSeq == Integer.MAX_VALUE ? 1 : snapshotSeq + 1;
+        lastSnapshot = SnapshotCodec.capture(snapshotSeq,
+            (int) (System.currentTimeMillis() - startTime), playerStore, lastSnapshot);
+        return lastSnapshot;
+    }
+    
+    private ByteBuffer encodeDelta(ClientSession session, SnapshotCodec.Snapshot view,
+                                   Map<SnapshotCodec.Snapshot, ByteBuffer> encodedDeltas) {
+        SnapshotCodec.Snapshot baseline = null;
+        int acked = session.ackedSnapshot;
+        if (acked != 0) {
+            SnapshotCodec.Snapshot candidate = session.sentSnapshots[acked % SnapshotCodec.HISTORY_SIZE];
+            if (candidate != null && candidate.getSeq() == acked) {
+                baseline = candidate;
+            }
+        }
+        session.sentSnapshots[view.getSeq() % SnapshotCodec.HISTORY_SIZE] = view;
+        
+        ByteBuffer frame = encodedDeltas != null ? encodedDeltas.get(baseline) : null;
+        if (frame == null) {
+            ByteBuffer buffer = frameArena.reserve(SnapshotCodec.maxEncodedSize(view, baseline));
+            SnapshotCodec.encode(view, baseline, buffer);
+            frame = frameArena.commit(buffer);
+            if (encodedDeltas != null) {
+                encodedDeltas.put(baseline, frame);
+            }
+        }
+        snapshotBytesSent += frame.remaining();
+        snapshotBytesSaved += view.getKeyframeSize() - frame.remaining();
+        return frame;
+    }
+    
+    private ByteBuffer encodeTextSnapshot() {
+        textEncoder.reset().put(PLAYERS_PREFIX);
+        boolean first = true;
+        for (int slot = 0; slot < playerStore.getHighWater(); slot++) {
+            if (!playerStore.isActive(slot)) {
+                continue;
+            }
+            if (!first) {
+                textEncoder.put(';');
             }
+            putTextRecord(slot);
+            first = false;
         }
+        return commitText();
+    }
+    
+    private ByteBuffer encodeTextSnapshot(InterestSet interest) {
+        textEncoder.reset().put(PLAYERS_PREFIX);
+        boolean first = true;
+        int[] ids = interest.getIds();
+        for (int i = 0; i < interest.size(); i++) {
+            int slot = playerStore.slotOf(ids[i]);
+            if (slot < 0) {
+                continue;
+            }
+            if (!first) {
+                textEncoder.put(';');
+            }
+            putTextRecord(slot);
+            first = false;
+        }
+        return commitText();
+    }
+    
+    private void putTextRecord(int slot) {
+        PlayerStore store = playerStore;
+        textEncoder.putPlayer(store.ids[slot], store.skinIds[slot], store.x[slot], store.y[slot], store.angle[slot],
+            store.isAttacking(slot), store.lastAttackTime[slot], store.nameBytes[slot],
+            store.health[slot], store.killCount[slot], store.isDashing(slot));
+    }
+    
+    private ByteBuffer commitText() {
+        textEncoder.put('\n');
+        return frameArena.copyOf(textEncoder.array(), textEncoder.length());
     }
     
     public static void main(String[] args) {
@@ -1,17 +1,17 @@
+import java.awt.Component;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
-import javax.swing.JPanel;
 
 public class InputHandler {
     private int mouseX, mouseY;
     private boolean mouseClicked;
     private boolean dashPressed;
-    private final JPanel gamePanel;
+    private final Component gamePanel;
     
-    public InputHandler(JPanel gamePanel) {
+    public InputHandler(Component gamePanel) {
         this.gamePanel = gamePanel;
         this.mouseClicked = false;
         this.dashPressed = false;
@@ -0,0 +1,117 @@
+import java.nio.ByteBuffer;
+
+public class InputHistory {
+    private final int[] seqs;
+    private final int[] targetX;
+    private final int[] targetY;
+    private final byte[] buttons;
+    private final PlayerMotion[] predicted;
+    private final PlayerMotion serverState = new PlayerMotion();
+    private int latestSeq = 0;
+    private int ackedSeq = 0;
+    private int pendingAck = 0;
+    private long corrections = 0;
+    
+    public InputHistory(int capacity) {
+        seqs = new int[capacity];
+        targetX = new int[capacity];
+        targetY = new int[capacity];
+        buttons = new byte[capacity];
+        predicted = new PlayerMotion[capacity];
+        for (int i = 0; i < capacity; i++) {
+            predicted[i] = new PlayerMotion();
+        }
+    }
+    
+    public static int clampTarget(int value) {
+        return Math.max(0, Math.min(0xFFFF, value));
+    }
+    
+    public synchronized int record(int x, int y, int pressed, PlayerMotion after) {
+        int seq = ++latestSeq;
+        int i = seq % seqs.length;
+        seqs[i] = seq;
+        targetX[i] = x;
+        targetY[i] = y;
+        buttons[i] = (byte) pressed;
+        predicted[i].set(after);
+        return seq;
+    }
+    
+    public synchronized int nextSeq() {
+        return latestSeq + 1;
+    }
+    
+    public synchronized void acknowledge(int seq, ByteBuffer state) {
+        if (seq <= ackedSeq || seq > latestSeq) {
+            return;
+        }
+        serverState.get(state);
+        ackedSeq = seq;
+        pendingAck = seq;
+    }
+    
+    public synchronized boolean reconcile(PlayerMotion motion) {
+        int seq = pendingAck;
+        if (seq == 0) {
+            return false;
+        }
+        pendingAck = 0;
+        int i = seq % seqs.length;
+        if (seqs[i] == seq && predicted[i].matches(serverState)) {
+            return false;
+        }
+        
+        motion.set(serverState);
+        for (int next = seq + 1; next <= latestSeq; next++) {
+            int j = next % seqs.length;
+            if (seqs[j] != next) {
+                continue;
+            }
+            motion.step(targetX[j], targetY[j], buttons[j]);
+            predicted[j].set(motion);
+        }
+        corrections++;
+        return true;
+    }
+    
+    public synchronized boolean putInputs(ByteBuffer buffer, int viewTime) {
+        int window = Math.min(seqs.length, Config.MAX_INPUTS_PER_PACKET);
+        int first = Math.max(ackedSeq + 1, latestSeq - window + 1);
+        if (first > latestSeq) {
+            return false;
+        }
+        int frameStart = BinaryProtocol.beginFrame(buffer, BinaryProtocol.MSG_INPUT);
+        buffer.putInt(latestSeq);
+        buffer.putInt(viewTime);
+        int runsPosition = buffer.position();
+        buffer.put((byte) 0);
+        
+        int runs = 0;
+        int seq = first;
+        while (seq <= latestSeq) {
+            int i = seq % seqs.length;
+            int repeat = 1;
+            while (seq + repeat <= latestSeq) {
+                int j = (seq + repeat) % seqs.length;
+                if (targetX[j] != targetX[i] || targetY[j] != targetY[i] || buttons[j] != buttons[i]) {
+                    break;
+                }
+                repeat++;
+            }
+            buffer.put((byte) repeat);
+            buffer.putShort((short) targetX[i]);
+            buffer.putShort((short) targetY[i]);
+            buffer.put(buttons[i]);
+            runs++;
+            seq += repeat;
+        }
+        buffer.put(runsPosition, (byte) runs);
+        BinaryProtocol.endFrame(buffer, frameStart);
+        return true;
+    }
+    
+    public synchronized long getCorrections() {
+        return corrections;
+    }
+}
@@ -0,0 +1,75 @@
+import java.util.Arrays;
+
+public class InterestSet {
+    private int[] ids = new int[16];
+    private int size = 0;
+    private int[] candidates = new int[16];
+    private int[] next = new int[16];
+    private long enters = 0;
+    private long leaves = 0;
+    
+    public void update(SpatialGrid grid, int selfId, int maxEntities, double radius, double leaveRadius) {
+        if (candidates.length < maxEntities) {
+            candidates = new int[maxEntities * 2];
+            next = new int[maxEntities * 2];
+        }
+        
+        double x = grid.getX(selfId);
+        double y = grid.getY(selfId);
+        double enterSquared = radius * radius;
+        double leaveSquared = leaveRadius * leaveRadius;
+        
+        int count = grid.query(x, y, leaveRadius, candidates);
+        int nextSize = 0;
+        for (int i = 0; i < count; i++) {
+            int id = candidates[i];
+            double dx = grid.getX(id) - x;
+            double dy = grid.getY(id) - y;
+            double distanceSquared = dx * dx + dy * dy;
+            if (id == selfId || distanceSquared < enterSquared || (distanceSquared < leaveSquared && contains(id))) {
+                next[nextSize++] = id;
+            }
+        }
+        Arrays.sort(next, 0, nextSize);
+        
+        int kept = 0;
+        for (int i = 0, j = 0; i < size && j < nextSize; ) {
+            if (ids[i] == next[j]) {
+                kept++;
+                i++;
+                j++;
+            } else if (ids[i] < next[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        enters += nextSize - kept;
+        leaves += size - kept;
+        
+        int[] previous = ids;
+        ids = next;
+        next = previous.length >= ids.length ? previous : new int[ids.length];
+        size = nextSize;
+    }
+    
+    public boolean contains(int id) {
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+    
+    public int[] getIds() {
+        return ids;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public long getEnters() {
+        return enters;
+    }
+    
+    public long getLeaves() {
+        return leaves;
+    }
+}
@@ -0,0 +1,186 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+public class LineParser {
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+    private static final int MAX_FAST_DIGITS = 15;
+    
+    private final byte[] buffer = new byte[8192];
+    private int bufferPosition = 0;
+    private int bufferLimit = 0;
+    private byte[] line = new byte[1024];
+    private int length = 0;
+    private int position = 0;
+    private int fieldStart = 0;
+    private int fieldEnd = 0;
+    
+    public boolean readLine(InputStream in) throws IOException {
+        length = 0;
+        position = 0;
+        while (true) {
+            if (bufferPosition == bufferLimit) {
+                int count = in.read(buffer);
+                if (count < 0) {
+                    return length > 0;
+                }
+                bufferPosition = 0;
+                bufferLimit = count;
+            }
+            int end = bufferPosition;
+            while (end < bufferLimit && buffer[end] != '\n') {
+                end++;
+            }
+            append(bufferPosition, end);
+            if (end < bufferLimit) {
+                bufferPosition = end + 1;
+                if (length > 0 && line[length - 1] == '\r') {
+                    length--;
+                }
+                return true;
+            }
+            bufferPosition = bufferLimit;
+        }
+    }
+    
+    public boolean startsWith(byte[] prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (line[i] != prefix[i]) {
+                return false;
+            }
+        }
+        position = prefix.length;
+        return true;
+    }
+    
+    public boolean hasMore() {
+        return position < length;
+    }
+    
+    public void skipRecord() {
+        while (position < length && line[position] != ';') {
+            position++;
+        }
+        if (position < length) {
+            position++;
+        }
+    }
+    
+    public int nextInt() {
+        long value = nextLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException(fieldString());
+        }
+        return (int) value;
+    }
+    
+    public long nextLong() {
+        nextField();
+        int i = fieldStart;
+        boolean negative = i < fieldEnd && line[i] == '-';
+        if (negative) {
+            i++;
+        }
+        if (i == fieldEnd || fieldEnd - i > 18) {
+            return Long.parseLong(fieldString());
+        }
+        long value = 0;
+        for (; i < fieldEnd; i++) {
+            int digit = line[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException(fieldString());
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+    
+    public double nextDouble() {
+        nextField();
+        int i = fieldStart;
+        boolean negative = i < fieldEnd && line[i] == '-';
+        if (negative) {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < fieldEnd; i++) {
+            byte b = line[i];
+            if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+                continue;
+            }
+            int digit = b - '0';
+            if (digit < 0 || digit > 9 || digits == MAX_FAST_DIGITS) {
+                return Double.parseDouble(fieldString());
+            }
+            mantissa = mantissa * 10 + digit;
+            digits++;
+            if (fractionDigits >= 0) {
+                fractionDigits++;
+            }
+        }
+        if (digits == 0) {
+            throw new NumberFormatException(fieldString());
+        }
+        double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+    
+    public boolean nextFlag() {
+        nextField();
+        return fieldEnd - fieldStart == 1 && line[fieldStart] == '1';
+    }
+    
+    public boolean nextFieldEquals(byte[] bytes) {
+        nextField();
+        if (bytes == null || bytes.length != fieldEnd - fieldStart) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (line[fieldStart + i] != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    public byte[] fieldBytes() {
+        return Arrays.copyOfRange(line, fieldStart, fieldEnd);
+    }
+    
+    public String fieldString() {
+        return new String(line, fieldStart, fieldEnd - fieldStart);
+    }
+    
+    @Override
+    public String toString() {
+        return new String(line, 0, length);
+    }
+    
+    private void nextField() {
+        fieldStart = position;
+        while (position < length && line[position] != ':' && line[position] != ';') {
+            position++;
+        }
+        fieldEnd = position;
+        if (position < length && line[position] == ':') {
+            position++;
+        }
+    }
+    
+    private void append(int from, int to) {
+        int count = to - from;
+        if (length + count > line.length) {
+            line = Arrays.copyOf(line, Math.max(length + count, line.length * 2));
+        }
+        System.arraycopy(buffer, from, line, length, count);
+        length += count;
+    }
+}
@@ -0,0 +1,98 @@
+import java.io.File;
+import java.io.IOException;
+import javax.sound.sampled.*;
+
+public class MusicStream {
+    private final String path;
+    private volatile float volume = 1.0f;
+    private volatile int generation = 0;
+    private boolean playing = false;
+    
+    public MusicStream(String path) {
+        this.path = path;
+    }
+    
+    public synchronized void start() {
+        if (playing) {
+            return;
+        }
+        playing = true;
+        int current = ++generation;
+        Thread thread = new Thread(() -> stream(current), "MusicStream");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    public synchronized void stop() {
+        if (playing) {
+            playing = false;
+            generation++;
+        }
+    }
+    
+    public synchronized boolean isPlaying() {
+        return playing;
+    }
+    
+    public void setVolume(float volume) {
+        this.volume = Math.max(0.0f, Math.min(1.0f, volume));
+    }
+    
+    private void stream(int current) {
+        SourceDataLine line = null;
+        try {
+            while (generation == current) {
+                try (AudioInputStream source = AudioSystem.getAudioInputStream(new File(path))) {
+                    AudioFormat sourceFormat = source.getFormat();
+                    AudioFormat format = new AudioFormat(sourceFormat.getSampleRate(), 16, sourceFormat.getChannels(), true, false);
+                    try (AudioInputStream pcm = AudioSystem.getAudioInputStream(format, source)) {
+                        int bufferBytes = (int) (format.getSampleRate() * Config.MUSIC_BUFFER / 1000) * format.getFrameSize();
+                        if (line == null) {
+                            line = AudioSystem.getSourceDataLine(format);
+                            line.open(format, bufferBytes);
+                            line.start();
+                        }
+                        
+                        byte[] chunk = new byte[Math.max(format.getFrameSize(), bufferBytes / 4 / format.getFrameSize() * format.getFrameSize())];
+                        long streamed = 0;
+                        int read;
+                        while (generation == current && (read = pcm.read(chunk, 0, chunk.length)) > 0) {
+                            applyVolume(chunk, read);
+                            line.write(chunk, 0, read);
+                            streamed += read;
+                        }
+                        if (streamed == 0) {
+                            break;
+                        }
+                    }
+                }
+            }
+        } catch (IOException | UnsupportedAudioFileException | LineUnavailableException | IllegalArgumentException e) {
+            e.printStackTrace();
+        } finally {
+            if (line != null) {
+                line.stop();
+                line.flush();
+                line.close();
+            }
+            synchronized(this) {
+                if (generation == current) {
+                    playing = false;
+                }
+            }
+        }
+    }
+    
+    private void applyVolume(byte[] chunk, int length) {
+        float gain = volume;
+        if (gain >= 1.0f) {
+            return;
+        }
+        for (int i = 0; i + 1 < length; i += 2) {
+            int sample = (short) ((chunk[i] & 0xFF) | (chunk[i + 1] << 8));
+            sample = (int) (sample * gain);
+            chunk[i] = (byte) sample;
+            chunk[i + 1] = (byte) (sample >> 8);
+        }
+    }
+}
@@ -1,19 +1,42 @@
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
 import java.util.*;
 
 public class NetworkClient {
+    private static final byte[] PLAYERS_PREFIX = "PLAYERS:".getBytes();
+    private static final byte[] ATTACK_PREFIX = "ATTACK:".getBytes();
+    
     private Socket socket;
-    private PrintWriter out;
-    private BufferedReader in;
+    private OutputStream out;
+    private InputStream in;
     private boolean connected;
+    private boolean binary;
     private ClientListener listener;
     private int playerId;
+    private final ByteBuffer sendBuffer = ByteBuffer.allocate(Math.max(BinaryProtocol.MAX_INPUT_FRAME_SIZE,
+        BinaryProtocol.STATE_FRAME_SIZE + BinaryProtocol.ATTACK_FRAME_SIZE));
+    private final SnapshotCodec.Decoder snapshotDecoder = new SnapshotCodec.Decoder();
+    private int lastSnapshotSeq = 0;
+    private volatile double serverClockOffset;
+    private boolean serverClockSynced = false;
+    private DatagramChannel udpChannel;
+    private int udpToken;
+    private int udpSeq = 0;
+    private volatile boolean udpConfirmed = false;
+    private final ByteBuffer udpSendBuffer = ByteBuffer.allocate(BinaryProtocol.DATAGRAM_HEADER_SIZE
+        + Math.max(BinaryProtocol.STATE_FRAME_SIZE, BinaryProtocol.MAX_INPUT_FRAME_SIZE));
+    private GameServer.PlayerData[] playerRecords = new GameServer.PlayerData[64];
+    private byte[][] playerNameBytes = new byte[64][];
+    private final List<GameServer.PlayerData> receivedPlayers = new ArrayList<>();
+    private final TextEncoder textEncoder = new TextEncoder(128);
+    private volatile InputHistory inputHistory;
     
     public interface ClientListener {
         void onPlayerUpdate(String playerData);
-        void onPlayersReceived(List<GameServer.PlayerData> players);
-        void onAttackEvent(String attackData);
+        void onPlayersReceived(List<GameServer.PlayerData> players, long snapshotTime);
+        void onAttackEvent(double x, double y, double angle, int skinId);
         void onConnectionLost();
     }
     
@@ -25,50 +48,64 @@ public class NetworkClient {
     public boolean connect(String serverIP, int port, int skinId, String playerName) {
         try {
             socket = new Socket(serverIP, port);
-            out = new PrintWriter(socket.getOutputStream(), true);
-            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            socket.setTcpNoDelay(true);
+            out = new BufferedOutputStream(socket.getOutputStream());
+            in = new BufferedInputStream(socket.getInputStream());
             
-            out.println(skinId + ":1:" + playerName);
+            int protocol = BinaryProtocol.PROTOCOL_TEXT;
+            if (Config.USE_BINARY_PROTOCOL) {
+                protocol = Config.USE_UDP ? BinaryProtocol.PROTOCOL_BINARY_UDP : BinaryProtocol.PROTOCOL_BINARY;
+            }
+            sendLine(skinId + ":" + protocol + ":" + playerName);
             
-            String playerIdStr = in.readLine();
+            String playerIdStr = BinaryProtocol.readLine(in);
             if (playerIdStr != null && !playerIdStr.startsWith("PLAYERS:")) {
                 if ("DUPLICATE".equals(playerIdStr)) {
                     System.out.println("Duplicate connection rejected");
                     return false;
                 }
-                playerId = Integer.parseInt(playerIdStr);
+                if ("FULL".equals(playerIdStr)) {
+                    System.out.println("Server is full");
+                    return false;
+                }
+                String[] reply = playerIdStr.split(":");
+                playerId = Integer.parseInt(reply[0]);
+                int replyProtocol = reply.length > 1 ? Integer.parseInt(reply[1]) : BinaryProtocol.PROTOCOL_TEXT;
+                boolean udp = replyProtocol == BinaryProtocol.PROTOCOL_BINARY_UDP && reply.length > 2;
+                if (udp) {
+                    udpToken = Integer.parseInt(reply[2]);
+                }
+                binary = replyProtocol == BinaryProtocol.PROTOCOL_BINARY || replyProtocol == BinaryProtocol.PROTOCOL_BINARY_UDP;
                 connected = true;
+                if (udp) {
+                    openUdpChannel(serverIP, port);
+                }
                 new Thread(this::listenForMessages).start();
                 return true;
             }
         } catch (IOException e) {
             e.printStackTrace();
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid handshake reply from server: " + e.getMessage());
         }
         return false;
     }
     
     private void listenForMessages() {
         try {
-            String inputLine;
-            while ((inputLine = in.readLine()) != null && connected) {
-                if (inputLine.startsWith("PLAYERS:")) {
-                    String playersData = inputLine.substring(8);
-                    List<GameServer.PlayerData> players = parsePlayersData(playersData);
-                    if (listener != null) {
-                        listener.onPlayersReceived(players);
-                    }
-                } else if (inputLine.startsWith("ATTACK:")) {
-                    if (listener != null) {
-                        listener.onAttackEvent(inputLine);
-                    }
-                } else {
-                    if (listener != null) {
-                        listener.onPlayerUpdate(inputLine);
-                    }
-                }
+            if (binary) {
+                listenForFrames();
+            } else {
+                listenForLines();
             }
+        } catch (EOFException e) {
+            System.out.println("Server closed the connection");
         } catch (IOException e) {
             e.printStackTrace();
+        } catch (RuntimeException e) {
+            System.out.println("Protocol error from server, disconnecting");
+            e.printStackTrace();
+            disconnect();
         }
         
         connected = false;
@@ -77,59 +114,327 @@ public class NetworkClient {
         }
     }
     
-    private List<GameServer.PlayerData> parsePlayersData(String data) {
-        List<GameServer.PlayerData> players = new ArrayList<>();
-        if (data.isEmpty()) return players;
-        
-        String[] playerStrings = data.split(";");
-        for (String playerStr : playerStrings) {
+    private void openUdpChannel(String serverIP, int port) {
+        try {
+            udpChannel = DatagramChannel.open();
+            udpChannel.connect(new InetSocketAddress(serverIP, port));
+            Thread udpThread = new Thread(this::listenForDatagrams, "udp-client");
+            udpThread.setDaemon(true);
+            udpThread.start();
+            sendUdpHello();
+        } catch (IOException e) {
+            System.out.println("UDP unavailable, using TCP only: " + e.getMessage());
+            udpChannel = null;
+        }
+    }
+    
+    private void listenForDatagrams() {
+        ByteBuffer datagram = ByteBuffer.allocate(Config.MAX_DATAGRAM_SIZE);
+        while (connected && udpChannel != null) {
+            try {
+                datagram.clear();
+                udpChannel.read(datagram);
+                datagram.flip();
+                if (datagram.remaining() < BinaryProtocol.LENGTH_SIZE
+                        || datagram.getInt() != datagram.remaining()) {
+                    continue;
+                }
+                udpConfirmed = true;
+                handleFrame(datagram);
+            } catch (IOException e) {
+                if (connected) {
+                    System.out.println("UDP channel closed, using TCP only");
+                }
+                udpConfirmed = false;
+                return;
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+    
+    private void listenForLines() throws IOException {
+        LineParser parser = new LineParser();
+        while (parser.readLine(in) && connected) {
+            if (parser.startsWith(PLAYERS_PREFIX)) {
+                List<GameServer.PlayerData> players = parsePlayersData(parser);
+                if (listener != null) {
+                    listener.onPlayersReceived(players, System.currentTimeMillis());
+                }
+            } else if (parser.startsWith(ATTACK_PREFIX)) {
+                parseAttackEvent(parser);
+            } else {
+                if (listener != null) {
+                    listener.onPlayerUpdate(parser.toString());
+                }
+            }
+        }
+    }
+    
+    private void listenForFrames() throws IOException {
+        DataInputStream dataIn = new DataInputStream(in);
+        byte[] frameBytes = new byte[4096];
+        while (connected) {
+            int length = dataIn.readInt();
+            if (length <= 0 || length > BinaryProtocol.MAX_FRAME_SIZE) {
+                throw new IOException("Invalid frame length " + length);
+            }
+            if (frameBytes.length < length) {
+                frameBytes = new byte[Math.max(length, frameBytes.length * 2)];
+            }
+            dataIn.readFully(frameBytes, 0, length);
+            handleFrame(ByteBuffer.wrap(frameBytes, 0, length));
+        }
+    }
+    
+    private void handleFrame(ByteBuffer frame) {
+        byte type = frame.get();
+        if (type == BinaryProtocol.MSG_SNAPSHOT) {
+            synchronized(snapshotDecoder) {
+                int seq = frame.getInt(frame.position());
+                if (seq <= lastSnapshotSeq && lastSnapshotSeq - seq < Integer.MAX_VALUE / 2) {
+                    return;
+                }
+                SnapshotCodec.Snapshot snapshot = snapshotDecoder.decode(frame);
+                if (snapshot == null) {
+                    sendAck(0);
+                    return;
+                }
+                lastSnapshotSeq = snapshot.getSeq();
+                sendAck(snapshot.getSeq());
+                receivedPlayers.clear();
+                for (int i = 0; i < snapshot.size(); i++) {
+                    SnapshotCodec.EntityState entity = snapshot.get(i);
+                    receivedPlayers.add(entity.copyTo(playerRecord(entity.id)));
+                }
+                if (listener != null) {
+                    listener.onPlayersReceived(receivedPlayers, toLocalTime(snapshot.getServerTime()));
+                }
+            }
+        } else if (type == BinaryProtocol.MSG_INPUT_ACK) {
+            InputHistory history = inputHistory;
+            if (history != null) {
+                history.acknowledge(frame.getInt(), frame);
+            }
+        } else if (type == BinaryProtocol.MSG_ATTACK) {
+            double x = BinaryProtocol.getPosition(frame);
+            double y = BinaryProtocol.getPosition(frame);
+            double angle = BinaryProtocol.getAngle(frame);
+            int skinId = frame.get() & 0xFF;
+            if (listener != null) {
+                listener.onAttackEvent(x, y, angle, skinId);
+            }
+        }
+    }
+    
+    private long toLocalTime(int serverTime) {
+        long sample = System.currentTimeMillis() - serverTime;
+        if (!serverClockSynced || Math.abs(sample - serverClockOffset) > 10000) {
+            serverClockOffset = sample;
+            serverClockSynced = true;
+        } else if (sample < serverClockOffset) {
+            serverClockOffset = sample;
+        } else {
+            serverClockOffset += (sample - serverClockOffset) * 0.01;
+        }
+        return serverTime + (long) serverClockOffset;
+    }
+    
+    private void parseAttackEvent(LineParser parser) {
+        if (listener != null) {
+            try {
+                double x = parser.nextDouble();
+                double y = parser.nextDouble();
+                double angle = parser.nextDouble();
+                int skinId = parser.nextInt();
+                
+                listener.onAttackEvent(x, y, angle, skinId);
+            } catch (NumberFormatException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+    
+    private List<GameServer.PlayerData> parsePlayersData(LineParser parser) {
+        receivedPlayers.clear();
+        while (parser.hasMore()) {
             try {
-                String[] parts = playerStr.split(":");
-                if (parts.length >= 11) {
-                    int id = Integer.parseInt(parts[0]);
-                    int skinId = Integer.parseInt(parts[1]);
-                    double x = Double.parseDouble(parts[2]);
-                    double y = Double.parseDouble(parts[3]);
-                    double angle = Double.parseDouble(parts[4]);
-                    boolean isAttacking = "1".equals(parts[5]);
-                    long lastAttackTime = Long.parseLong(parts[6]);
-                    String name = parts[7];
-                    int health = Integer.parseInt(parts[8]);
-                    int killCount = Integer.parseInt(parts[9]);
-                    boolean isDashing = "1".equals(parts[10]);
-                    
-                    GameServer.PlayerData playerData = new GameServer.PlayerData(id, x, y, skinId, name);
-                    playerData.angle = angle;
-                    playerData.isAttacking = isAttacking;
-                    playerData.lastAttackTime = lastAttackTime;
-                    playerData.health = health;
-                    playerData.killCount = killCount;
-                    playerData.isDashing = isDashing;
-                    
-                    players.add(playerData);
+                int id = parser.nextInt();
+                int skinId = parser.nextInt();
+                double x = parser.nextDouble();
+                double y = parser.nextDouble();
+                double angle = parser.nextDouble();
+                boolean isAttacking = parser.nextFlag();
+                long lastAttackTime = parser.nextLong();
+                GameServer.PlayerData playerData = playerRecord(id);
+                if (!parser.nextFieldEquals(playerNameBytes[id])) {
+                    playerNameBytes[id] = parser.fieldBytes();
+                    playerData.name = parser.fieldString();
                 }
+                int health = parser.nextInt();
+                int killCount = parser.nextInt();
+                boolean isDashing = parser.nextFlag();
+                
+                playerData.skinId = skinId;
+                playerData.x = x;
+                playerData.y = y;
+                playerData.angle = angle;
+                playerData.isAttacking = isAttacking;
+                playerData.lastAttackTime = lastAttackTime;
+                playerData.health = health;
+                playerData.killCount = killCount;
+                playerData.isDashing = isDashing;
+                
+                receivedPlayers.add(playerData);
             } catch (NumberFormatException e) {
                 e.printStackTrace();
             }
+            parser.skipRecord();
         }
-        return players;
+        return receivedPlayers;
+    }
+    
+    private GameServer.PlayerData playerRecord(int id) {
+        if (id < 0 || id > BinaryProtocol.MAX_PLAYER_ID) {
+            throw new NumberFormatException("Invalid player id " + id);
+        }
+        if (id >= playerRecords.length) {
+            int capacity = Math.min(BinaryProtocol.MAX_PLAYER_ID + 1, Math.max(id + 1, playerRecords.length * 2));
+            playerRecords = Arrays.copyOf(playerRecords, capacity);
+            playerNameBytes = Arrays.copyOf(playerNameBytes, capacity);
+        }
+        GameServer.PlayerData playerData = playerRecords[id];
+        if (playerData == null) {
+            playerData = new GameServer.PlayerData(id, 0, 0, 0, null);
+            playerRecords[id] = playerData;
+        }
+        return playerData;
     }
     
     public void sendPlayerData(double x, double y, double angle, boolean isAttacking, long lastAttackTime, int health, int killCount, boolean isDashing) {
-        if (connected && out != null) {
-            out.println(String.format("%.1f:%.1f:%.1f:%s:%d:%d:%d:%s", 
-                x, y, angle, isAttacking ? "1" : "0", lastAttackTime, health, killCount, isDashing ? "1" : "0"));
+        if (!connected || out == null) {
+            return;
+        }
+        if (binary) {
+            synchronized(sendBuffer) {
+                if (udpChannel != null && !udpConfirmed) {
+                    sendUdpHello();
+                }
+                sendBuffer.clear();
+                BinaryProtocol.putState(sendBuffer, x, y, angle, isAttacking, lastAttackTime, health, killCount, isDashing);
+                if (!sendDatagram(sendBuffer)) {
+                    sendBytes(sendBuffer.array(), sendBuffer.position());
+                }
+            }
+        } else {
+            synchronized(sendBuffer) {
+                textEncoder.reset().putState(x, y, angle, isAttacking, lastAttackTime, health, killCount, isDashing).put('\n');
+                sendBytes(textEncoder.array(), textEncoder.length());
+            }
+        }
+    }
+    
+    public boolean usePrediction(InputHistory history) {
+        if (!binary || !Config.CLIENT_PREDICTION) {
+            return false;
+        }
+        inputHistory = history;
+        return true;
+    }
+    
+    public void sendInputs() {
+        InputHistory history = inputHistory;
+        if (!connected || out == null || history == null) {
+            return;
+        }
+        synchronized(sendBuffer) {
+            sendBuffer.clear();
+            int viewTime = serverClockSynced
+                ? (int) (System.currentTimeMillis() - Config.INTERPOLATION_DELAY - (long) serverClockOffset) : 0;
+            if (history.putInputs(sendBuffer, viewTime) && !sendDatagram(sendBuffer)) {
+                sendBytes(sendBuffer.array(), sendBuffer.position());
+            }
         }
     }
     
     public void sendAttackEvent(double x, double y, double angle, int skinId) {
-        if (connected && out != null) {
-            out.println(String.format("ATTACK:%.1f:%.1f:%.1f:%d", x, y, angle, skinId));
+        if (!connected || out == null) {
+            return;
+        }
+        if (binary) {
+            synchronized(sendBuffer) {
+                sendBuffer.clear();
+                BinaryProtocol.putAttack(sendBuffer, x, y, angle, skinId);
+                sendBytes(sendBuffer.array(), sendBuffer.position());
+            }
+        } else {
+            synchronized(sendBuffer) {
+                textEncoder.reset().putAttack(x, y, angle, skinId).put('\n');
+                sendBytes(textEncoder.array(), textEncoder.length());
+            }
+        }
+    }
+    
+    private void sendAck(int snapshotSeq) {
+        synchronized(sendBuffer) {
+            sendBuffer.clear();
+            BinaryProtocol.putAck(sendBuffer, snapshotSeq);
+            if (!sendDatagram(sendBuffer)) {
+                sendBytes(sendBuffer.array(), sendBuffer.position());
+            }
+        }
+    }
+    
+    private void sendUdpHello() {
+        synchronized(sendBuffer) {
+            udpSendBuffer.clear();
+            BinaryProtocol.putDatagramHeader(udpSendBuffer, playerId, udpToken, 0);
+            BinaryProtocol.putHello(udpSendBuffer);
+            udpSendBuffer.flip();
+            try {
+                udpChannel.write(udpSendBuffer);
+            } catch (IOException e) {
+            }
+        }
+    }
+    
+    private boolean sendDatagram(ByteBuffer frame) {
+        if (udpChannel == null || !udpConfirmed) {
+            return false;
+        }
+        udpSendBuffer.clear();
+        BinaryProtocol.putDatagramHeader(udpSendBuffer, playerId, udpToken, ++udpSeq);
+        udpSendBuffer.put(frame.array(), 0, frame.position());
+        udpSendBuffer.flip();
+        try {
+            udpChannel.write(udpSendBuffer);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+    
+    private void sendLine(String line) {
+        byte[] bytes = (line + "\n").getBytes();
+        sendBytes(bytes, bytes.length);
+    }
+    
+    private synchronized void sendBytes(byte[] bytes, int length) {
+        try {
+            out.write(bytes, 0, length);
+            out.flush();
+        } catch (IOException e) {
         }
     }
     
     public void disconnect() {
         connected = false;
+        if (udpChannel != null) {
+            try {
+                udpChannel.close();
+            } catch (IOException e) {
+            }
+        }
         try {
             if (socket != null && !socket.isClosed()) {
                 socket.close();
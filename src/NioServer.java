@@ -0,0 +1,325 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class NioServer {
+    private static final int READ_BUFFER_SIZE = 4096;
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+    private static final int WRITE_BATCH_SIZE = 16;
+    
+    private final GameServer gameServer;
+    private final int port;
+    private final IoWorker[] workers;
+    private final Charset charset = Charset.defaultCharset();
+    private ServerSocketChannel serverChannel;
+    private int nextWorker = 0;
+    
+    public NioServer(GameServer gameServer, int port, int ioThreads) {
+        this.gameServer = gameServer;
+        this.port = port;
+        this.workers = new IoWorker[Math.max(1, ioThreads)];
+    }
+    
+    public void start() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new IoWorker();
+            Thread thread = new Thread(workers[i], "nio-io-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        System.out.println("Server started on port " + port + " (nio, " + workers.length + " io threads)");
+        
+        while (gameServer.isRunning()) {
+            SocketChannel channel = serverChannel.accept();
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            } catch (IOException e) {
+                channel.close();
+                continue;
+            }
+            workers[nextWorker].register(channel);
+            nextWorker = (nextWorker + 1) % workers.length;
+        }
+    }
+    
+    private class IoWorker implements Runnable {
+        private final Selector selector;
+        private final Queue<SocketChannel> pendingChannels = new ConcurrentLinkedQueue<>();
+        private final Queue<NioSession> pendingWrites = new ConcurrentLinkedQueue<>();
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        
+        IoWorker() throws IOException {
+            this.selector = Selector.open();
+        }
+        
+        void register(SocketChannel channel) {
+            pendingChannels.add(channel);
+            selector.wakeup();
+        }
+        
+        void requestWrite(NioSession session) {
+            pendingWrites.add(session);
+            selector.wakeup();
+        }
+        
+        @Override
+        public void run() {
+            while (gameServer.isRunning()) {
+                try {
+                    selector.select();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    return;
+                }
+                
+                SocketChannel channel;
+                while ((channel = pendingChannels.poll()) != null) {
+                    try {
+                        NioSession session = new NioSession(channel, this);
+                        session.key = channel.register(selector, SelectionKey.OP_READ, session);
+                    } catch (IOException e) {
+                        closeQuietly(channel);
+                    }
+                }
+                
+                NioSession writer;
+                while ((writer = pendingWrites.poll()) != null) {
+                    writer.flush();
+                }
+                
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    NioSession session = (NioSession) key.attachment();
+                    if (!key.isValid()) {
+                        session.disconnect();
+                        continue;
+                    }
+                    if (key.isReadable()) {
+                        session.read(readBuffer);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        session.flush();
+                    }
+                }
+            }
+        }
+    }
+    
+    private class NioSession extends GameServer.ClientSession {
+        private final SocketChannel channel;
+        private final IoWorker worker;
+        private final String hostAddress;
+        private final ByteBuffer[] writeBatch = new ByteBuffer[WRITE_BATCH_SIZE];
+        private int batchStart = 0;
+        private int batchEnd = 0;
+        private final AtomicBoolean writeScheduled = new AtomicBoolean(false);
+        private final ByteArrayOutputStream lineBuffer = new ByteArrayOutputStream(256);
+        private ByteBuffer frameBuffer;
+        private SelectionKey key;
+        private boolean handshakeDone = false;
+        private volatile boolean closeAfterFlush = false;
+        private volatile boolean evicted = false;
+        private volatile boolean closed = false;
+        
+        NioSession(SocketChannel channel, IoWorker worker) throws IOException {
+            this.channel = channel;
+            this.worker = worker;
+            this.hostAddress = ((InetSocketAddress) channel.getRemoteAddress()).getAddress().getHostAddress();
+        }
+        
+        @Override
+        void onOutboundReady() {
+            if (!closed && writeScheduled.compareAndSet(false, true)) {
+                worker.requestWrite(this);
+            }
+        }
+        
+        @Override
+        void evict() {
+            evicted = true;
+            writeScheduled.set(true);
+            worker.requestWrite(this);
+        }
+        
+        @Override
+        String getHostAddress() {
+            return hostAddress;
+        }
+        
+        void read(ByteBuffer buffer) {
+            buffer.clear();
+            int count;
+            try {
+                count = channel.read(buffer);
+            } catch (IOException e) {
+                count = -1;
+            }
+            if (count < 0) {
+                disconnect();
+                return;
+            }
+            
+            buffer.flip();
+            while (buffer.hasRemaining() && !closed) {
+                if (handshakeDone && binary) {
+                    readFrames(buffer);
+                    return;
+                }
+                byte b = buffer.get();
+                if (b == '\n') {
+                    byte[] bytes = lineBuffer.toByteArray();
+                    int length = bytes.length;
+                    if (length > 0 && bytes[length - 1] == '\r') {
+                        length--;
+                    }
+                    lineBuffer.reset();
+                    handleLine(new String(bytes, 0, length, charset));
+                } else if (lineBuffer.size() < MAX_LINE_LENGTH) {
+                    lineBuffer.write(b);
+                } else {
+                    disconnect();
+                }
+            }
+        }
+        
+        private void readFrames(ByteBuffer buffer) {
+            if (closeAfterFlush) {
+                buffer.position(buffer.limit());
+                return;
+            }
+            if (frameBuffer == null) {
+                frameBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            }
+            if (frameBuffer.remaining() < buffer.remaining()) {
+                ByteBuffer grown = ByteBuffer.allocate(frameBuffer.position() + buffer.remaining() + READ_BUFFER_SIZE);
+                frameBuffer.flip();
+                grown.put(frameBuffer);
+                frameBuffer = grown;
+            }
+            frameBuffer.put(buffer);
+            frameBuffer.flip();
+            
+            while (frameBuffer.remaining() >= BinaryProtocol.LENGTH_SIZE && !closed) {
+                int length = frameBuffer.getInt(frameBuffer.position());
+                if (length <= 0 || length > BinaryProtocol.MAX_FRAME_SIZE) {
+                    disconnect();
+                    return;
+                }
+                if (frameBuffer.remaining() < BinaryProtocol.LENGTH_SIZE + length) {
+                    break;
+                }
+                int frameStart = frameBuffer.position() + BinaryProtocol.LENGTH_SIZE;
+                ByteBuffer frame = frameBuffer.duplicate();
+                frame.position(frameStart).limit(frameStart + length);
+                frameBuffer.position(frameStart + length);
+                gameServer.handleClientFrame(this, frame.slice());
+            }
+            frameBuffer.compact();
+        }
+        
+        private void handleLine(String line) {
+            if (closeAfterFlush) {
+                return;
+            }
+            if (!handshakeDone) {
+                handshakeDone = true;
+                if (gameServer.handleHandshake(this, line) == null) {
+                    closeAfterFlush = true;
+                    if (writeScheduled.compareAndSet(false, true)) {
+                        worker.requestWrite(this);
+                    }
+                }
+                return;
+            }
+            gameServer.handleClientMessage(this, line);
+        }
+        
+        void flush() {
+            if (closed) {
+                return;
+            }
+            if (evicted) {
+                disconnect();
+                return;
+            }
+            try {
+                while (fillWriteBatch()) {
+                    channel.write(writeBatch, batchStart, batchEnd - batchStart);
+                    while (batchStart < batchEnd && !writeBatch[batchStart].hasRemaining()) {
+                        writeBatch[batchStart++] = null;
+                        outbound.sent();
+                    }
+                    if (batchStart < batchEnd) {
+                        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                }
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                writeScheduled.set(false);
+                if (!outbound.isEmpty() && writeScheduled.compareAndSet(false, true)) {
+                    worker.requestWrite(this);
+                } else if (closeAfterFlush) {
+                    disconnect();
+                }
+            } catch (IOException | CancelledKeyException e) {
+                disconnect();
+            }
+        }
+        
+        private boolean fillWriteBatch() {
+            if (batchStart < batchEnd) {
+                return true;
+            }
+            batchStart = 0;
+            batchEnd = 0;
+            ByteBuffer buffer;
+            while (batchEnd < writeBatch.length && (buffer = outbound.poll()) != null) {
+                writeBatch[batchEnd++] = buffer;
+            }
+            return batchEnd > 0;
+        }
+        
+        void disconnect() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            outbound.close();
+            outbound.clear();
+            outbound.releaseInFlight();
+            Arrays.fill(writeBatch, null);
+            batchStart = 0;
+            batchEnd = 0;
+            if (playerData != null) {
+                System.out.println("Client disconnected: " + playerData.name);
+            }
+            gameServer.handleDisconnect(this);
+            if (key != null) {
+                key.cancel();
+            }
+            closeQuietly(channel);
+        }
+    }
+    
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+        }
+    }
+}
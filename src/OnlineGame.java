@@ -1,9 +1,11 @@
 import java.awt.*;
+import java.awt.image.BufferStrategy;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import javax.imageio.ImageIO;
 import javax.swing.*;
 
@@ -14,9 +16,17 @@ public class OnlineGame extends JPanel implements Runnable, NetworkClient.Client
     private final ParticleManager particleManager;
     private NetworkClient networkClient;
     private Map<Integer, RemotePlayer> remotePlayers;
-    private BufferedImage mapBackground;
+    private StaticImageLayer mapBackground;
     private String playerName;
     private javax.swing.Timer networkTimer;
+    private volatile boolean predicting;
+    private final Canvas canvas;
+    private final Queue<Runnable> gameThreadTasks = new ConcurrentLinkedQueue<>();
+    private final SnapshotBuffer snapshots = new SnapshotBuffer();
+    private volatile boolean running = true;
+    private long lastStepTime;
+    private long stepAccumulator;
+    private double renderAlpha;
     
     public OnlineGame(int skinId, String playerName) {
         this.playerName = playerName;
@@ -24,26 +34,40 @@ public class OnlineGame extends JPanel implements Runnable, NetworkClient.Client
         setFocusable(true);
         
         try {
-            mapBackground = ImageIO.read(new File("assets/bg/map_bg.png"));
+            BufferedImage mapImage = ImageIO.read(new File("assets/bg/map_bg.png"));
+            if (mapImage != null) {
+                mapBackground = new StaticImageLayer(mapImage, Config.WINDOW_WIDTH, Config.WINDOW_HEIGHT);
+            }
         } catch (IOException e) {
             e.printStackTrace();
             setBackground(Color.DARK_GRAY);
         }
         
+        if (Config.ACTIVE_RENDERING) {
+            canvas = new Canvas();
+            canvas.setPreferredSize(new Dimension(Config.WINDOW_WIDTH, Config.WINDOW_HEIGHT));
+            canvas.setIgnoreRepaint(true);
+            canvas.setFocusable(true);
+            setLayout(new BorderLayout());
+            add(canvas, BorderLayout.CENTER);
+        } else {
+            canvas = null;
+        }
+        
         localPlayer = new Player(Config.WINDOW_WIDTH / 2, Config.WINDOW_HEIGHT / 2, skinId, playerName, 
             (x, y, angle, attackSkinId) -> {
-                if (networkClient != null && networkClient.isConnected()) {
+                if (networkClient != null && networkClient.isConnected() && !predicting) {
                     networkClient.sendAttackEvent(x, y, angle, attackSkinId);
                 }
             });
-        inputHandler = new InputHandler(this);
+        inputHandler = new InputHandler(canvas != null ? canvas : this);
         particleManager = new ParticleManager();
         remotePlayers = new HashMap<>();
         
         inputHandler.addListeners();
         
-        gameTimer = new javax.swing.Timer(1000 / Config.FPS, e -> {
-            update();
+        gameTimer = new javax.swing.Timer(1000 / renderRate(), e -> {
+            advanceSimulation();
             repaint();
         });
         
@@ -57,8 +81,13 @@ public class OnlineGame extends JPanel implements Runnable, NetworkClient.Client
         
         String serverIP = Config.SERVER_IP;
         if (connectToServer(serverIP, Config.SERVER_PORT, skinId)) {
+            predicting = networkClient.usePrediction(localPlayer.getInputHistory());
             networkTimer = new javax.swing.Timer(1000 / Config.NETWORK_UPDATE_RATE, e -> {
                 if (networkClient.isConnected()) {
+                    if (predicting) {
+                        networkClient.sendInputs();
+                        return;
+                    }
                     networkClient.sendPlayerData(
                         localPlayer.getX(),
                         localPlayer.getY(),
@@ -95,17 +124,133 @@ public class OnlineGame extends JPanel implements Runnable, NetworkClient.Client
     
     @Override
     public void run() {
-        gameTimer.start();
+        if (canvas == null) {
+            gameTimer.start();
+            return;
+        }
+        
+        long frameTime = 1_000_000_000L / renderRate();
+        long nextFrame = System.nanoTime();
+        while (running) {
+            BufferStrategy strategy = canvas.getBufferStrategy();
+            if (strategy == null) {
+                if (canvas.isDisplayable()) {
+                    canvas.createBufferStrategy(Config.RENDER_BUFFERS);
+                    canvas.requestFocus();
+                    continue;
+                }
+            } else {
+                advanceSimulation();
+                renderFrame(strategy);
+            }
+            
+            nextFrame += frameTime;
+            long now = System.nanoTime();
+            if (now - nextFrame > frameTime) {
+                nextFrame = now;
+            }
+            long sleep = nextFrame - now;
+            if (sleep > 1_000_000) {
+                try {
+                    Thread.sleep((sleep - 1_000_000) / 1_000_000);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            while (System.nanoTime() < nextFrame) {
+                Thread.yield();
+            }
+        }
+    }
+    
+    private static int renderRate() {
+        if (Config.RENDER_FPS > 0) {
+            return Config.RENDER_FPS;
+        }
+        if (!GraphicsEnvironment.isHeadless()) {
+            int refreshRate = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDisplayMode().getRefreshRate();
+            if (refreshRate != DisplayMode.REFRESH_RATE_UNKNOWN) {
+                return refreshRate;
+            }
+        }
+        return Config.FPS;
+    }
+    
+    private void advanceSimulation() {
+        long stepTime = 1_000_000_000L / Config.FPS;
+        long now = System.nanoTime();
+        if (lastStepTime == 0) {
+            lastStepTime = now - stepTime;
+        }
+        stepAccumulator += now - lastStepTime;
+        lastStepTime = now;
+        
+        int steps = 0;
+        while (stepAccumulator >= stepTime) {
+            if (steps == Config.MAX_SIMULATION_STEPS) {
+                stepAccumulator %= stepTime;
+                break;
+            }
+            update();
+            stepAccumulator -= stepTime;
+            steps++;
+        }
+        renderAlpha = (double) stepAccumulator / stepTime;
+    }
+    
+    private void renderFrame(BufferStrategy strategy) {
+        do {
+            do {
+                Graphics2D g2d = (Graphics2D) strategy.getDrawGraphics();
+                try {
+                    if (mapBackground == null) {
+                        g2d.setColor(Color.DARK_GRAY);
+                        g2d.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+                    }
+                    render(g2d, renderAlpha);
+                } finally {
+                    g2d.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync();
+    }
+    
+    @Override
+    public void requestFocus() {
+        if (canvas != null) {
+            canvas.requestFocus();
+        } else {
+            super.requestFocus();
+        }
     }
     
     private void update() {
+        Runnable task;
+        while ((task = gameThreadTasks.poll()) != null) {
+            task.run();
+        }
+        if (snapshots.take()) {
+            applySnapshot();
+        }
+        
         if (localPlayer.isDead()) {
-            respawnPlayer();
+            if (!predicting) {
+                respawnPlayer();
+            }
         } else {
             localPlayer.update(inputHandler, particleManager);
         }
         
         particleManager.update();
+        for (RemotePlayer remotePlayer : remotePlayers.values()) {
+            remotePlayer.step();
+            if (remotePlayer.particleManager != null) {
+                remotePlayer.particleManager.update();
+            }
+        }
         checkCombat();
         
         remotePlayers.values().removeIf(RemotePlayer::isTimedOut);
@@ -133,6 +278,9 @@ public class OnlineGame extends JPanel implements Runnable, NetworkClient.Client
     }
     
     private void applyKnockbackToLocal() {
+        if (predicting) {
+            return;
+        }
         RemotePlayer attacker = findClosestAttacker();
         if (attacker != null) {
             localPlayer.applyKnockbackFrom(attacker.getX(), attacker.getY(), Config.KNOCKBACK_FORCE);
@@ -164,25 +312,29 @@ public class OnlineGame extends JPanel implements Runnable, NetworkClient.Client
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-        Graphics2D g2d = (Graphics2D) g;
+        if (canvas == null) {
+            render((Graphics2D) g, renderAlpha);
+        }
+    }
+    
+    private void render(Graphics2D g2d, double alpha) {
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         
         if (mapBackground != null) {
-            g2d.drawImage(mapBackground, 0, 0, Config.WINDOW_WIDTH, Config.WINDOW_HEIGHT, null);
+            mapBackground.draw(g2d, 0, 0);
         }
         
-        localPlayer.render(g2d);
+        localPlayer.render(g2d, alpha);
         
         for (RemotePlayer remotePlayer : remotePlayers.values()) {
             remotePlayer.interpolateMove();
             remotePlayer.render(g2d);
             if (remotePlayer.particleManager != null && remotePlayer.getHealth() > 0) {
-                remotePlayer.particleManager.update();
-                remotePlayer.particleManager.render(g2d);
+                remotePlayer.particleManager.render(g2d, alpha);
             }
         }
         
-        particleManager.render(g2d);
+        particleManager.render(g2d, alpha);
         
         if (!localPlayer.isDead()) {
             renderCooldownBar(g2d);
@@ -193,15 +345,11 @@ public class OnlineGame extends JPanel implements Runnable, NetworkClient.Client
     }
     
     private void renderCooldownBar(Graphics2D g2d) {
-        long currentTime = System.currentTimeMillis();
-        long timeSinceLastAttack = currentTime - localPlayer.getLastAttackTime();
-        
-        if (timeSinceLastAttack >= Config.ATTACK_COOLDOWN) {
+        double cooldownProgress = localPlayer.getAttackCooldownProgress();
+        if (cooldownProgress >= 1.0) {
             return;
         }
         
-        double cooldownProgress = Math.min(1.0, (double) timeSinceLastAttack / Config.ATTACK_COOLDOWN);
-        
         g2d.setColor(Color.BLACK);
         g2d.fillRect(Config.COOLDOWN_BAR_X, Config.COOLDOWN_BAR_Y, Config.COOLDOWN_BAR_WIDTH, Config.COOLDOWN_BAR_HEIGHT);
         
@@ -255,26 +403,20 @@ public class OnlineGame extends JPanel implements Runnable, NetworkClient.Client
     }
     
     @Override
-    public void onAttackEvent(String attackData) {
-        String[] parts = attackData.split(":");
-        if (parts.length >= 5) {
-            try {
-                double x = Double.parseDouble(parts[1]);
-                double y = Double.parseDouble(parts[2]);
-                double angle = Double.parseDouble(parts[3]);
-                int skinId = Integer.parseInt(parts[4]);
-                
-                particleManager.spawnParticle(x, y, angle, skinId);
-            } catch (NumberFormatException e) {
-                e.printStackTrace();
-            }
-        }
+    public void onAttackEvent(double x, double y, double angle, int skinId) {
+        gameThreadTasks.add(() -> particleManager.spawnParticle(x, y, angle, skinId));
     }
     
     @Override
-    public void onPlayersReceived(java.util.List<GameServer.PlayerData> players) {
+    public void onPlayersReceived(java.util.List<GameServer.PlayerData> players, long snapshotTime) {
+        snapshots.publish(players, snapshotTime);
+    }
+    
+    private void applySnapshot() {
+        long snapshotTime = snapshots.getSnapshotTime();
         Set<Integer> activePlayerIds = new HashSet<>();
-        for (GameServer.PlayerData playerData : players) {
+        for (int i = 0; i < snapshots.size(); i++) {
+            GameServer.PlayerData playerData = snapshots.get(i);
             activePlayerIds.add(playerData.id);
             if (playerData.id != networkClient.getPlayerId()) {
                 RemotePlayer remotePlayer = remotePlayers.get(playerData.id);
@@ -282,7 +424,7 @@ public class OnlineGame extends JPanel implements Runnable, NetworkClient.Client
                     remotePlayer = new RemotePlayer(playerData.id, playerData.x, playerData.y, playerData.skinId, playerData.name);
                     remotePlayers.put(playerData.id, remotePlayer);
                 } else {
-                    remotePlayer.update(playerData.x, playerData.y, playerData.angle, playerData.isAttacking, playerData.isDashing);
+                    remotePlayer.update(snapshotTime, playerData.x, playerData.y, playerData.angle, playerData.isAttacking, playerData.isDashing);
                     remotePlayer.setHealth(playerData.health);
                     remotePlayer.setKillCount(playerData.killCount);
                     
@@ -291,6 +433,11 @@ public class OnlineGame extends JPanel implements Runnable, NetworkClient.Client
                     }
                 }
             } else {
+                if (predicting && localPlayer.isDead() && playerData.health > 0) {
+                    localPlayer.revive();
+                    localPlayer.setPosition(Config.MAP_WIDTH / 2, Config.MAP_HEIGHT / 2);
+                    continue;
+                }
                 int oldHealth = localPlayer.getHealth();
                 int oldKillCount = localPlayer.getKillCount();
                 
@@ -334,5 +481,9 @@ public class OnlineGame extends JPanel implements Runnable, NetworkClient.Client
         if (gameTimer != null) {
             gameTimer.stop();
         }
+        running = false;
+        if (mapBackground != null) {
+            mapBackground.flush();
+        }
     }
 }
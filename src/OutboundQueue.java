@@ -0,0 +1,149 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+public class OutboundQueue {
+    public enum OverflowPolicy {
+        COALESCE,
+        DROP,
+        DISCONNECT
+    }
+    
+    private static class Entry {
+        ByteBuffer data;
+        FrameArena.Lease lease;
+        final boolean snapshot;
+        
+        Entry(ByteBuffer data, FrameArena.Lease lease, boolean snapshot) {
+            this.data = data;
+            this.lease = lease;
+            this.snapshot = snapshot;
+        }
+    }
+    
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+    private final ArrayDeque<Entry> inFlight = new ArrayDeque<>();
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private Entry pendingSnapshot;
+    private boolean closed = false;
+    private int maxDepth = 0;
+    private long dropped = 0;
+    private long coalesced = 0;
+    
+    public OutboundQueue(int capacity, OverflowPolicy policy) {
+        this.capacity = capacity;
+        this.policy = policy;
+    }
+    
+    public boolean offer(ByteBuffer data, boolean snapshot) {
+        return offer(data, snapshot, null);
+    }
+    
+    public synchronized boolean offer(ByteBuffer data, boolean snapshot, FrameArena.Lease lease) {
+        if (closed) {
+            return true;
+        }
+        if (snapshot && policy == OverflowPolicy.COALESCE && pendingSnapshot != null) {
+            release(pendingSnapshot.lease);
+            pendingSnapshot.data = data;
+            pendingSnapshot.lease = retain(lease);
+            coalesced++;
+            return true;
+        }
+        if (entries.size() >= capacity) {
+            if (policy == OverflowPolicy.DROP) {
+                dropped++;
+                return true;
+            }
+            return false;
+        }
+        
+        Entry entry = new Entry(data, retain(lease), snapshot);
+        entries.add(entry);
+        if (snapshot) {
+            pendingSnapshot = entry;
+        }
+        maxDepth = Math.max(maxDepth, entries.size());
+        notifyAll();
+        return true;
+    }
+    
+    public synchronized ByteBuffer poll() {
+        Entry entry = entries.poll();
+        if (entry == null) {
+            return null;
+        }
+        if (entry == pendingSnapshot) {
+            pendingSnapshot = null;
+        }
+        inFlight.add(entry);
+        return entry.data;
+    }
+    
+    public synchronized void sent() {
+        Entry entry = inFlight.poll();
+        if (entry != null) {
+            release(entry.lease);
+        }
+    }
+    
+    public synchronized ByteBuffer take() throws InterruptedException {
+        while (entries.isEmpty() && !closed) {
+            wait();
+        }
+        return poll();
+    }
+    
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+    
+    public synchronized void clear() {
+        for (Entry entry : entries) {
+            release(entry.lease);
+        }
+        entries.clear();
+        pendingSnapshot = null;
+    }
+    
+    public synchronized void releaseInFlight() {
+        Entry entry;
+        while ((entry = inFlight.poll()) != null) {
+            release(entry.lease);
+        }
+    }
+    
+    public synchronized boolean isEmpty() {
+        return entries.isEmpty();
+    }
+    
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    public synchronized int getMaxDepth() {
+        return maxDepth;
+    }
+    
+    public synchronized long getDropped() {
+        return dropped;
+    }
+    
+    public synchronized long getCoalesced() {
+        return coalesced;
+    }
+    
+    private static FrameArena.Lease retain(FrameArena.Lease lease) {
+        if (lease != null) {
+            lease.retain();
+        }
+        return lease;
+    }
+    
+    private static void release(FrameArena.Lease lease) {
+        if (lease != null) {
+            lease.release();
+        }
+    }
+}
@@ -1,7 +1,4 @@
 import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
-import javax.imageio.ImageIO;
 
 public class Particle {
     private double x, y;
@@ -10,6 +7,7 @@ public class Particle {
     private boolean active = false;
     private long spawnTime;
     private double moveOffset = 0;
+    private double prevMoveOffset = 0;
     private int skinId = 1;
     
     public Particle() {
@@ -17,26 +15,11 @@ public class Particle {
     }
     
     private void loadAnimation(int skinId) {
-        try {
-            this.skinId = skinId;
-            BufferedImage[] frames;
-            
-            if (skinId == 1) {
-                frames = new BufferedImage[4];
-                frames[0] = ImageIO.read(new File("assets/player/skin_1/ranged_particles-sheet0-0.png"));
-                frames[1] = ImageIO.read(new File("assets/player/skin_1/ranged_particles-sheet0-1.png"));
-                frames[2] = ImageIO.read(new File("assets/player/skin_1/ranged_particles-sheet0-2.png"));
-                frames[3] = ImageIO.read(new File("assets/player/skin_1/ranged_particles-sheet0-3.png"));
-            } else {
-                frames = new BufferedImage[3];
-                frames[0] = ImageIO.read(new File("assets/player/skin_2/ranged_particles-sheet0-0.png"));
-                frames[1] = ImageIO.read(new File("assets/player/skin_2/ranged_particles-sheet0-1.png"));
-                frames[2] = ImageIO.read(new File("assets/player/skin_2/ranged_particles-sheet0-2.png"));
-            }
-            animation = new Animation(frames, Config.PARTICLE_ANIMATION_DELAY);
-        } catch (IOException e) {
-            e.printStackTrace();
+        if (animation != null && this.skinId == skinId) {
+            return;
         }
+        this.skinId = skinId;
+        animation = new Animation(AnimationLibrary.particleFrames(skinId), Config.PARTICLE_ANIMATION_DELAY);
     }
     
     public void spawn(double x, double y, double angle, int skinId) { 
@@ -45,6 +28,7 @@ public class Particle {
         this.x = x + Math.cos(angle) * Config.PARTICLE_SPAWN_DISTANCE;
         this.y = y + Math.sin(angle) * Config.PARTICLE_SPAWN_DISTANCE;
         this.moveOffset = 0;
+        this.prevMoveOffset = 0;
         this.active = true;
         this.spawnTime = System.currentTimeMillis();
         animation.reset();
@@ -55,6 +39,7 @@ public class Particle {
         
         animation.update();
         
+        prevMoveOffset = moveOffset;
         moveOffset += 3.0;
         
         if (moveOffset > Config.ATTACK_RANGE) {
@@ -67,17 +52,18 @@ public class Particle {
         }
     }
     
-    public void render(java.awt.Graphics2D g2d) {
+    public void render(java.awt.Graphics2D g2d, double alpha) {
         if (!active) return;
         
         BufferedImage frame = animation.getCurrentFrame();
         if (frame != null) {
             int scaledSize = 80;
-            double renderX = x + Math.cos(angle) * moveOffset;
-            double renderY = y + Math.sin(angle) * moveOffset;
+            double offset = prevMoveOffset + (moveOffset - prevMoveOffset) * alpha;
+            double renderX = x + Math.cos(angle) * offset;
+            double renderY = y + Math.sin(angle) * offset;
             int drawX = (int) renderX - scaledSize / 2;
             int drawY = (int) renderY - scaledSize / 2;
-            g2d.drawImage(frame, drawX, drawY, scaledSize, scaledSize, null);
+            RotatedSpriteCache.drawScaled(g2d, frame, scaledSize, drawX, drawY);
         }
     }
     
@@ -26,9 +26,9 @@ public class ParticleManager {
         }
     }
     
-    public void render(java.awt.Graphics2D g2d) {
+    public void render(java.awt.Graphics2D g2d, double alpha) {
         for (Particle particle : particleList) {
-            particle.render(g2d);
+            particle.render(g2d, alpha);
         }
     }
 }
@@ -1,44 +1,29 @@
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
-import javax.imageio.ImageIO;
-import javax.sound.sampled.*;
 
 public class Player {
-    private double x, y;
-    private double targetX, targetY;
-    private double speed = Config.PLAYER_SPEED;
-    private double angle = 0;
+    private final PlayerMotion motion = new PlayerMotion();
+    private final InputHistory inputHistory = new InputHistory(Config.INPUT_HISTORY_SIZE);
     private Animation walkAnimation;
     private Animation attackAnimation;
     private boolean isAttacking = false;
-    private boolean isMoving = false;
     private long lastAttackTime = 0;
+    private int attackSeq = 0;
     private boolean canAttack = true;
     private long attackEndTime = 0;
     private long attackRecoveryDelay = 300;
-    private double knockbackVelX = 0;
-    private double knockbackVelY = 0;
-    private long knockbackStartTime = 0;
     private double bobOffset = 0;
-    private Clip footstepsClip;
-    private Clip weaponClip;
+    private int footstepsVoice;
     private boolean wasMoving = false;
     private int skinId;
     private int health = Config.MAX_HEALTH;
     private String playerName = "Player";
     private PlayerAttackCallback attackCallback;
     private int killCount = 0;
-    private Clip damagedClip;
-    private Clip deathClip;
-    private Clip buttonClip;
-    private boolean isDashing = false;
     private long lastDashTime = 0;
-    private double dashVelX = 0;
-    private double dashVelY = 0;
-    private long dashStartTime = 0;
     private long deathTime = 0;
+    private double prevX, prevY, prevAngle;
+    private double renderX, renderY;
     
     public interface PlayerAttackCallback {
         void onPlayerAttack(double x, double y, double angle, int skinId);
@@ -49,141 +34,71 @@ public class Player {
     }
     
     public Player(double x, double y, int skinId, String playerName, PlayerAttackCallback attackCallback) {
-        this.x = x;
-        this.y = y;
-        this.targetX = x;
-        this.targetY = y;
+        setPosition(x, y);
         this.skinId = skinId;
         this.playerName = playerName;
         this.attackCallback = attackCallback;
         
-        try {
-            String skinPath = skinId == 1 ? "assets/player/skin_1/" : "assets/player/skin_2/";
-            
-            BufferedImage[] walkFrames = new BufferedImage[1];
-            walkFrames[0] = ImageIO.read(new File(skinPath + "skins-sheet2-0.png"));
-            walkAnimation = new Animation(walkFrames, Config.WALK_ANIMATION_DELAY);
-            
-            BufferedImage[] attackFrames;
-            if (skinId == 1) {
-                attackFrames = new BufferedImage[6];
-                attackFrames[0] = ImageIO.read(new File(skinPath + "skins-sheet2-0.png"));
-                attackFrames[1] = ImageIO.read(new File(skinPath + "skins-sheet2-1.png"));
-                attackFrames[2] = ImageIO.read(new File(skinPath + "skins-sheet2-2.png"));
-                attackFrames[3] = ImageIO.read(new File(skinPath + "skins-sheet2-3.png"));
-                attackFrames[4] = ImageIO.read(new File(skinPath + "skins-sheet2-3.png"));
-                attackFrames[5] = ImageIO.read(new File(skinPath + "skins-sheet2-3.png"));
-            } else {
-                attackFrames = new BufferedImage[11];
-                attackFrames[0] = ImageIO.read(new File(skinPath + "skins-sheet2-0.png"));
-                attackFrames[1] = ImageIO.read(new File(skinPath + "skins-sheet2-1.png"));
-                attackFrames[2] = ImageIO.read(new File(skinPath + "skins-sheet2-2.png"));
-                attackFrames[3] = ImageIO.read(new File(skinPath + "skins-sheet2-3.png"));
-                attackFrames[4] = ImageIO.read(new File(skinPath + "skins-sheet2-4.png"));
-                attackFrames[5] = ImageIO.read(new File(skinPath + "skins-sheet2-4.png"));
-                attackFrames[6] = ImageIO.read(new File(skinPath + "skins-sheet2-4.png"));
-                attackFrames[7] = ImageIO.read(new File(skinPath + "skins-sheet2-4.png"));
-                attackFrames[8] = ImageIO.read(new File(skinPath + "skins-sheet2-4.png"));
-                attackFrames[9] = ImageIO.read(new File(skinPath + "skins-sheet2-4.png"));
-                attackFrames[10] = ImageIO.read(new File(skinPath + "skins-sheet2-4.png"));
-            }
-            
-            attackAnimation = new Animation(attackFrames, Config.ATTACK_ANIMATION_DELAY);
-            
-            try {
-                AudioInputStream footstepsStream = AudioSystem.getAudioInputStream(new File("assets/sfx/footsteps.wav"));
-                footstepsClip = AudioSystem.getClip();
-                footstepsClip.open(footstepsStream);
-                
-                AudioInputStream weaponStream = AudioSystem.getAudioInputStream(new File("assets/sfx/weapon.wav"));
-                weaponClip = AudioSystem.getClip();
-                weaponClip.open(weaponStream);
-                
-                AudioInputStream damagedStream = AudioSystem.getAudioInputStream(new File("assets/sfx/damaged.wav"));
-                damagedClip = AudioSystem.getClip();
-                damagedClip.open(damagedStream);
-                
-                AudioInputStream deathStream = AudioSystem.getAudioInputStream(new File("assets/sfx/death.wav"));
-                deathClip = AudioSystem.getClip();
-                deathClip.open(deathStream);
-                
-                AudioInputStream buttonStream = AudioSystem.getAudioInputStream(new File("assets/sfx/button.wav"));
-                buttonClip = AudioSystem.getClip();
-                buttonClip.open(buttonStream);
-            } catch (IOException | UnsupportedAudioFileException | LineUnavailableException e) {
-                e.printStackTrace();
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        walkAnimation = new Animation(AnimationLibrary.walkFrames(skinId), Config.WALK_ANIMATION_DELAY);
+        attackAnimation = new Animation(AnimationLibrary.attackFrames(skinId), Config.ATTACK_ANIMATION_DELAY);
+        
+        AudioMixer.preload("assets/sfx/footsteps.wav", "assets/sfx/weapon.wav", "assets/sfx/damaged.wav",
+            "assets/sfx/death.wav", "assets/sfx/button.wav");
     }
     
     public void update(InputHandler inputHandler, ParticleManager particleManager) {
-        applyKnockback();
-        applyDash();
+        prevX = motion.x;
+        prevY = motion.y;
+        prevAngle = motion.angle;
+        inputHistory.reconcile(motion);
         
-        targetX = inputHandler.getMouseX();
-        targetY = inputHandler.getMouseY();
+        int targetX = InputHistory.clampTarget(inputHandler.getMouseX());
+        int targetY = InputHistory.clampTarget(inputHandler.getMouseY());
         
         long currentTime = System.currentTimeMillis();
-        if (currentTime - lastAttackTime >= Config.ATTACK_COOLDOWN) {
-            canAttack = true;
-        }
-      
-        if (inputHandler.isDashPressed() && currentTime - lastDashTime >= Config.DASH_COOLDOWN && !isDead()) {
-            dashVelX = Math.cos(angle) * Config.DASH_DISTANCE;
-            dashVelY = Math.sin(angle) * Config.DASH_DISTANCE;
-            isDashing = true;
-            lastDashTime = currentTime;
-            dashStartTime = currentTime;
-            SoundManager.playTeleportSound();
+        int seq = inputHistory.nextSeq();
+        canAttack = PlayerMotion.attackReady(seq, attackSeq);
+        
+        int buttons = 0;
+        if (inputHandler.isDashPressed() && motion.canDash() && !isDead()) {
+            buttons |= PlayerMotion.BUTTON_DASH;
             inputHandler.setDashPressed(false);
         }
         
+        boolean attacked = false;
         if (inputHandler.isMouseClicked() && canAttack && !isDead()) {
             isAttacking = true;
             attackAnimation.reset();
             lastAttackTime = currentTime;
+            attackSeq = seq;
             canAttack = false;
-            particleManager.spawnParticle(x, y, angle, skinId);
-            
-            if (attackCallback != null) {
-                attackCallback.onPlayerAttack(x, y, angle, skinId);
-            }
-            
-            if (weaponClip != null) {
-                weaponClip.setFramePosition(0);
-                weaponClip.start();
-            }
-            
+            attacked = true;
+            buttons |= PlayerMotion.BUTTON_ATTACK;
             inputHandler.setMouseClicked(false);
         }
         
-        double dx = targetX - x;
-        double dy = targetY - y;
-        double distance = Math.sqrt(dx * dx + dy * dy);
+        boolean inRecovery = (currentTime - attackEndTime) < attackRecoveryDelay;
+        if (isAttacking || inRecovery) {
+            buttons |= PlayerMotion.BUTTON_BLOCKED;
+        }
         
-        long recoveryTime = System.currentTimeMillis();
-        boolean inRecovery = (recoveryTime - attackEndTime) < attackRecoveryDelay;
+        if (motion.step(targetX, targetY, buttons)) {
+            lastDashTime = currentTime;
+            SoundManager.playTeleportSound();
+        }
+        inputHistory.record(targetX, targetY, buttons, motion);
         
-        if (distance > Config.MOVEMENT_THRESHOLD && !isAttacking && !inRecovery) {
-            isMoving = true;
-            double moveAngle = Math.atan2(dy, dx);
-            angle = moveAngle;
+        if (attacked) {
+            particleManager.spawnParticle(motion.x, motion.y, motion.angle, skinId);
             
-            double newX = x + Math.cos(moveAngle) * speed;
-            double newY = y + Math.sin(moveAngle) * speed;
-            
-            if (newX >= Config.PLAYER_SIZE/2 && newX <= Config.MAP_WIDTH - Config.PLAYER_SIZE/2) {
-                x = newX;
-            }
-            if (newY >= Config.PLAYER_SIZE/2 && newY <= Config.MAP_HEIGHT - Config.PLAYER_SIZE/2) {
-                y = newY;
+            if (attackCallback != null) {
+                attackCallback.onPlayerAttack(motion.x, motion.y, motion.angle, skinId);
             }
-        } else {
-            isMoving = false;
+            
+            AudioMixer.play("assets/sfx/weapon.wav", 1.0f, AudioMixer.PRIORITY_HIGH);
         }
         
+        boolean isMoving = motion.moving;
         if (isAttacking) {
             attackAnimation.update();
             if (attackAnimation.isFinished()) {
@@ -194,19 +109,21 @@ public class Player {
             bobOffset += Config.BOB_SPEED;
         }
         
-        if (isMoving && footstepsClip != null) {
-            if (!footstepsClip.isRunning()) {
-                footstepsClip.setFramePosition(0);
-                footstepsClip.start();
-            }
+        if (isMoving && !AudioMixer.isPlaying(footstepsVoice)) {
+            footstepsVoice = AudioMixer.play("assets/sfx/footsteps.wav", 1.0f, AudioMixer.PRIORITY_NORMAL);
         }
-        if (!isMoving && footstepsClip != null) {
-            footstepsClip.stop();
-            footstepsClip.setFramePosition(0);
+        if (!isMoving && footstepsVoice != 0) {
+            AudioMixer.stop(footstepsVoice);
+            footstepsVoice = 0;
         }
     }
     
-    public void render(Graphics2D g2d) {
+    public void render(Graphics2D g2d, double alpha) {
+        renderX = prevX + (motion.x - prevX) * alpha;
+        renderY = prevY + (motion.y - prevY) * alpha;
+        double turn = Math.IEEEremainder(motion.angle - prevAngle, 2 * Math.PI);
+        double renderAngle = prevAngle + turn * alpha;
+        
         if (isDead()) {
             renderPlayerInfo(g2d, 0);
             return;
@@ -216,44 +133,46 @@ public class Player {
         
         if (isAttacking) {
             currentFrame = attackAnimation.getCurrentFrame();
-        } else if (isMoving) {
+        } else if (motion.moving) {
             currentFrame = walkAnimation.getCurrentFrame();
         } else {
             currentFrame = walkAnimation.getFrame(0);
         }
         
         if (currentFrame != null) {
-            int scaledWidth = Config.PLAYER_SIZE;
-            int scaledHeight = Config.PLAYER_SIZE;
-            
             double bobY = 0;
-            if (isMoving) {
+            if (motion.moving) {
                 bobY = Math.sin(bobOffset) * Config.BOB_AMPLITUDE;
             }
             
-            Graphics2D g2dCopy = (Graphics2D) g2d.create();
-            g2dCopy.translate(x, y + bobY);
-            g2dCopy.rotate(angle);
-            g2dCopy.translate(-scaledWidth / 2, -scaledHeight / 2);
-            g2dCopy.drawImage(currentFrame, 0, 0, scaledWidth, scaledHeight, null);
-            g2dCopy.dispose();
+            RotatedSpriteCache.drawRotated(g2d, currentFrame, Config.PLAYER_SIZE, renderAngle, renderX, renderY + bobY);
             
             renderPlayerInfo(g2d, bobY);
         }
     }
     
-    public double getX() { return x; }
-    public double getY() { return y; }
-    public double getAngle() { return angle; }
+    public double getX() { return motion.x; }
+    public double getY() { return motion.y; }
+    public double getAngle() { return motion.angle; }
+    
+    public InputHistory getInputHistory() {
+        return inputHistory;
+    }
     
     public boolean canAttack() {
-        long currentTime = System.currentTimeMillis();
         if (!canAttack) {
-            canAttack = currentTime >= lastAttackTime + Config.ATTACK_COOLDOWN;
+            canAttack = PlayerMotion.attackReady(inputHistory.nextSeq(), attackSeq);
         }
         return canAttack;
     }
     
+    public double getAttackCooldownProgress() {
+        if (attackSeq == 0) {
+            return 1.0;
+        }
+        return Math.min(1.0, (double) (inputHistory.nextSeq() - attackSeq) / PlayerMotion.ATTACK_COOLDOWN_STEPS);
+    }
+    
     public void takeDamage(int damage) {
         health -= damage;
         if (health <= 0) {
@@ -261,14 +180,10 @@ public class Player {
             deathTime = System.currentTimeMillis();
         }
         
-        if (damagedClip != null && health > 0) {
-            damagedClip.setFramePosition(0);
-            damagedClip.start();
-        }
-        
-        if (deathClip != null && health <= 0) {
-            deathClip.setFramePosition(0);
-            deathClip.start();
+        if (health > 0) {
+            AudioMixer.play("assets/sfx/damaged.wav", 1.0f, AudioMixer.PRIORITY_HIGH);
+        } else {
+            AudioMixer.play("assets/sfx/death.wav", 1.0f, AudioMixer.PRIORITY_HIGH);
         }
     }
     
@@ -303,38 +218,8 @@ public class Player {
         return killCount;
     }
     
-    private void applyKnockback() {
-        if (knockbackVelX != 0 || knockbackVelY != 0) {
-            long currentTime = System.currentTimeMillis();
-            long knockbackElapsed = currentTime - knockbackStartTime;
-            
-            if (knockbackElapsed >= 100) {
-                double newX = x + knockbackVelX;
-                double newY = y + knockbackVelY;
-                
-                newX = Math.max(Config.PLAYER_SIZE/2, Math.min(Config.MAP_WIDTH - Config.PLAYER_SIZE/2, newX));
-                newY = Math.max(Config.PLAYER_SIZE/2, Math.min(Config.MAP_HEIGHT - Config.PLAYER_SIZE/2, newY));
-                
-                x = newX;
-                y = newY;
-            }
-            
-            knockbackVelX *= 0.7;
-            knockbackVelY *= 0.7;
-            
-            if (Math.abs(knockbackVelX) < 0.1) knockbackVelX = 0;
-            if (Math.abs(knockbackVelY) < 0.1) knockbackVelY = 0;
-        }
-    }
-    
     public void applyKnockbackFrom(double attackerX, double attackerY, double force) {
-        double dxToAttacker = attackerX - x;
-        double dyToAttacker = attackerY - y;
-        double angleToAttacker = Math.atan2(dyToAttacker, dxToAttacker);
-        
-        knockbackVelX = -Math.cos(angleToAttacker) * force;
-        knockbackVelY = -Math.sin(angleToAttacker) * force;
-        knockbackStartTime = System.currentTimeMillis();
+        motion.knockbackFrom(attackerX, attackerY, force);
     }
     
     public boolean isAttacking() {
@@ -342,7 +227,7 @@ public class Player {
     }
     
     public boolean isDashing() {
-        return isDashing;
+        return motion.isDashing();
     }
     
     public long getDeathTime() {
@@ -350,8 +235,9 @@ public class Player {
     }
     
     public void setPosition(double x, double y) {
-        this.x = x;
-        this.y = y;
+        motion.reset(x, y);
+        prevX = x;
+        prevY = y;
     }
     
     public int getSkinId() {
@@ -359,10 +245,7 @@ public class Player {
     }
     
     public void playButtonSound() {
-        if (buttonClip != null) {
-            buttonClip.setFramePosition(0);
-            buttonClip.start();
-        }
+        AudioMixer.play("assets/sfx/button.wav", 1.0f, AudioMixer.PRIORITY_HIGH);
     }
     
     public void renderDeathOverlay(Graphics2D g2d) {
@@ -409,8 +292,8 @@ public class Player {
         FontMetrics fm = g2d.getFontMetrics();
         
         int nameWidth = fm.stringWidth(playerName);
-        int nameX = (int)x - nameWidth / 2;
-        int nameY = (int)(y + bobY) - Config.PLAYER_SIZE / 2 - 35;
+        int nameX = (int)renderX - nameWidth / 2;
+        int nameY = (int)(renderY + bobY) - Config.PLAYER_SIZE / 2 - 35;
         
         g2d.setColor(Color.BLACK);
         g2d.drawString(playerName, nameX + 1, nameY + 1);
@@ -419,8 +302,8 @@ public class Player {
         
         int barWidth = 80;
         int barHeight = 8;
-        int healthBarX = (int)x - barWidth / 2;
-        int healthBarY = (int)(y + bobY) - Config.PLAYER_SIZE / 2 - 25;
+        int healthBarX = (int)renderX - barWidth / 2;
+        int healthBarY = (int)(renderY + bobY) - Config.PLAYER_SIZE / 2 - 25;
         
         double healthPercent = (double)health / Config.MAX_HEALTH;
         
@@ -453,27 +336,4 @@ public class Player {
             g2d.drawRect(healthBarX, dashBarY, barWidth, dashBarHeight);
         }
     }
-    
-    private void applyDash() {
-        if (isDashing) {
-            long currentTime = System.currentTimeMillis();
-            long dashElapsed = currentTime - dashStartTime;
-            
-            if (dashElapsed >= 150) { 
-                double newX = x + dashVelX;
-                double newY = y + dashVelY;
-                
-          
-                newX = Math.max(Config.PLAYER_SIZE/2, Math.min(Config.MAP_WIDTH - Config.PLAYER_SIZE/2, newX));
-                newY = Math.max(Config.PLAYER_SIZE/2, Math.min(Config.MAP_HEIGHT - Config.PLAYER_SIZE/2, newY));
-                
-                x = newX;
-                y = newY;
-                
-                isDashing = false;
-                dashVelX = 0;
-                dashVelY = 0;
-            }
-        }
-    }
 }
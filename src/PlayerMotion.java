@@ -0,0 +1,197 @@
+import java.nio.ByteBuffer;
+
+public class PlayerMotion {
+    public static final int BUTTON_BLOCKED = 1;
+    public static final int BUTTON_DASH = 2;
+    public static final int BUTTON_ATTACK = 4;
+    
+    public static final int STATE_SIZE = 8 * 7 + 4 + 2 + 2;
+    public static final int ATTACK_COOLDOWN_STEPS = (int) (Config.ATTACK_COOLDOWN * Config.FPS / 1000);
+    
+    private static final int DASH_DELAY_STEPS = (int) (150L * Config.FPS / 1000);
+    private static final int DASH_COOLDOWN_STEPS = (int) (Config.DASH_COOLDOWN * Config.FPS / 1000);
+    private static final int KNOCKBACK_DELAY_STEPS = (int) (100L * Config.FPS / 1000);
+    private static final double MIN_POSITION = Config.PLAYER_SIZE / 2;
+    
+    double x, y, angle;
+    double knockbackVelX, knockbackVelY;
+    int knockbackDelay;
+    double dashVelX, dashVelY;
+    int dashSteps;
+    int dashCooldown;
+    boolean moving;
+    
+    public static boolean attackReady(int seq, int lastAttackSeq) {
+        return lastAttackSeq == 0 || seq - lastAttackSeq >= ATTACK_COOLDOWN_STEPS;
+    }
+    
+    public boolean step(double targetX, double targetY, int buttons) {
+        applyKnockback();
+        applyDash();
+        
+        boolean dashed = false;
+        if ((buttons & BUTTON_DASH) != 0 && dashCooldown == 0) {
+            dashVelX = StrictMath.cos(angle) * Config.DASH_DISTANCE;
+            dashVelY = StrictMath.sin(angle) * Config.DASH_DISTANCE;
+            dashSteps = DASH_DELAY_STEPS;
+            dashCooldown = DASH_COOLDOWN_STEPS;
+            dashed = true;
+        }
+        
+        double dx = targetX - x;
+        double dy = targetY - y;
+        double distance = StrictMath.sqrt(dx * dx + dy * dy);
+        moving = distance > Config.MOVEMENT_THRESHOLD && (buttons & BUTTON_BLOCKED) == 0;
+        if (moving) {
+            angle = StrictMath.atan2(dy, dx);
+            double newX = x + StrictMath.cos(angle) * Config.PLAYER_SPEED;
+            double newY = y + StrictMath.sin(angle) * Config.PLAYER_SPEED;
+            
+            if (newX >= MIN_POSITION && newX <= Config.MAP_WIDTH - MIN_POSITION) {
+                x = newX;
+            }
+            if (newY >= MIN_POSITION && newY <= Config.MAP_HEIGHT - MIN_POSITION) {
+                y = newY;
+            }
+        }
+        return dashed;
+    }
+    
+    public void knockbackFrom(double attackerX, double attackerY, double force) {
+        double angleToAttacker = StrictMath.atan2(attackerY - y, attackerX - x);
+        knockbackVelX = -StrictMath.cos(angleToAttacker) * force;
+        knockbackVelY = -StrictMath.sin(angleToAttacker) * force;
+        knockbackDelay = KNOCKBACK_DELAY_STEPS;
+    }
+    
+    public boolean canDash() {
+        return dashCooldown == 0;
+    }
+    
+    public boolean isDashing() {
+        return dashSteps > 0;
+    }
+    
+    public void reset(double x, double y) {
+        this.x = x;
+        this.y = y;
+        knockbackVelX = 0;
+        knockbackVelY = 0;
+        knockbackDelay = 0;
+        dashVelX = 0;
+        dashVelY = 0;
+        dashSteps = 0;
+        moving = false;
+    }
+    
+    private void applyKnockback() {
+        if (knockbackVelX != 0 || knockbackVelY != 0) {
+            if (knockbackDelay > 0) {
+                knockbackDelay--;
+            } else {
+                x = clampX(x + knockbackVelX);
+                y = clampY(y + knockbackVelY);
+            }
+            
+            knockbackVelX *= 0.7;
+            knockbackVelY *= 0.7;
+            
+            if (Math.abs(knockbackVelX) < 0.1) knockbackVelX = 0;
+            if (Math.abs(knockbackVelY) < 0.1) knockbackVelY = 0;
+        }
+    }
+    
+    private void applyDash() {
+        if (dashCooldown > 0) {
+            dashCooldown--;
+        }
+        if (dashSteps > 0 && --dashSteps == 0) {
+            x = clampX(x + dashVelX);
+            y = clampY(y + dashVelY);
+            dashVelX = 0;
+            dashVelY = 0;
+        }
+    }
+    
+    private static double clampX(double value) {
+        return Math.max(MIN_POSITION, Math.min(Config.MAP_WIDTH - MIN_POSITION, value));
+    }
+    
+    private static double clampY(double value) {
+        return Math.max(MIN_POSITION, Math.min(Config.MAP_HEIGHT - MIN_POSITION, value));
+    }
+    
+    public void set(PlayerMotion other) {
+        x = other.x;
+        y = other.y;
+        angle = other.angle;
+        knockbackVelX = other.knockbackVelX;
+        knockbackVelY = other.knockbackVelY;
+        knockbackDelay = other.knockbackDelay;
+        dashVelX = other.dashVelX;
+        dashVelY = other.dashVelY;
+        dashSteps = other.dashSteps;
+        dashCooldown = other.dashCooldown;
+        moving = other.moving;
+    }
+    
+    public boolean matches(PlayerMotion other) {
+        return x == other.x && y == other.y && angle == other.angle
+            && knockbackVelX == other.knockbackVelX && knockbackVelY == other.knockbackVelY
+            && knockbackDelay == other.knockbackDelay
+            && dashVelX == other.dashVelX && dashVelY == other.dashVelY
+            && dashSteps == other.dashSteps && dashCooldown == other.dashCooldown;
+    }
+    
+    public void load(PlayerStore store, int slot) {
+        x = store.x[slot];
+        y = store.y[slot];
+        angle = store.angle[slot];
+        knockbackVelX = store.knockbackVelX[slot];
+        knockbackVelY = store.knockbackVelY[slot];
+        knockbackDelay = store.knockbackDelay[slot];
+        dashVelX = store.dashVelX[slot];
+        dashVelY = store.dashVelY[slot];
+        dashSteps = store.dashSteps[slot];
+        dashCooldown = store.dashCooldown[slot];
+    }
+    
+    public void store(PlayerStore store, int slot) {
+        store.x[slot] = x;
+        store.y[slot] = y;
+        store.angle[slot] = angle;
+        store.knockbackVelX[slot] = knockbackVelX;
+        store.knockbackVelY[slot] = knockbackVelY;
+        store.knockbackDelay[slot] = knockbackDelay;
+        store.dashVelX[slot] = dashVelX;
+        store.dashVelY[slot] = dashVelY;
+        store.dashSteps[slot] = dashSteps;
+        store.dashCooldown[slot] = dashCooldown;
+    }
+    
+    public void put(ByteBuffer buffer) {
+        buffer.putDouble(x);
+        buffer.putDouble(y);
+        buffer.putDouble(angle);
+        buffer.putDouble(knockbackVelX);
+        buffer.putDouble(knockbackVelY);
+        buffer.putInt(knockbackDelay);
+        buffer.putDouble(dashVelX);
+        buffer.putDouble(dashVelY);
+        buffer.putShort((short) dashSteps);
+        buffer.putShort((short) dashCooldown);
+    }
+    
+    public void get(ByteBuffer buffer) {
+        x = buffer.getDouble();
+        y = buffer.getDouble();
+        angle = buffer.getDouble();
+        knockbackVelX = buffer.getDouble();
+        knockbackVelY = buffer.getDouble();
+        knockbackDelay = buffer.getInt();
+        dashVelX = buffer.getDouble();
+        dashVelY = buffer.getDouble();
+        dashSteps = buffer.getShort();
+        dashCooldown = buffer.getShort();
+    }
+}
@@ -0,0 +1,74 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class PlayerRegistry {
+    private static final GameServer.ClientSession[] EMPTY = new GameServer.ClientSession[0];
+    
+    private final AtomicReferenceArray<GameServer.ClientSession> byId;
+    private final int maxId;
+    private volatile GameServer.ClientSession[] sessions = EMPTY;
+    private int nextId = 1;
+    private int reserved = 0;
+    
+    public PlayerRegistry(int maxId) {
+        this.maxId = maxId;
+        this.byId = new AtomicReferenceArray<>(maxId + 1);
+    }
+    
+    synchronized int reserve(GameServer.ClientSession session) {
+        if (reserved >= maxId) {
+            return 0;
+        }
+        int id = nextId;
+        while (byId.get(id) != null) {
+            id = id % maxId + 1;
+        }
+        nextId = id % maxId + 1;
+        reserved++;
+        
+        session.playerId = id;
+        session.playerData.id = id;
+        byId.set(id, session);
+        return id;
+    }
+    
+    synchronized void activate(GameServer.ClientSession session) {
+        if (byId.get(session.playerId) != session) {
+            return;
+        }
+        GameServer.ClientSession[] grown = Arrays.copyOf(sessions, sessions.length + 1);
+        grown[sessions.length] = session;
+        sessions = grown;
+    }
+    
+    synchronized boolean remove(GameServer.ClientSession session) {
+        int id = session.playerId;
+        if (id <= 0 || id > maxId || !byId.compareAndSet(id, session, null)) {
+            return false;
+        }
+        reserved--;
+        GameServer.ClientSession[] current = sessions;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == session) {
+                GameServer.ClientSession[] shrunk = new GameServer.ClientSession[current.length - 1];
+                System.arraycopy(current, 0, shrunk, 0, i);
+                System.arraycopy(current, i + 1, shrunk, i, current.length - i - 1);
+                sessions = shrunk;
+                break;
+            }
+        }
+        return true;
+    }
+    
+    GameServer.ClientSession get(int id) {
+        return id > 0 && id <= maxId ? byId.get(id) : null;
+    }
+    
+    GameServer.ClientSession[] sessions() {
+        return sessions;
+    }
+    
+    int size() {
+        return sessions.length;
+    }
+}
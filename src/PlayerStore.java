@@ -0,0 +1,156 @@
+import java.util.Arrays;
+
+public class PlayerStore {
+    int[] ids;
+    int[] skinIds;
+    String[] names;
+    byte[][] nameBytes;
+    double[] x;
+    double[] y;
+    double[] angle;
+    byte[] flags;
+    long[] lastAttackTime;
+    int[] health;
+    int[] killCount;
+    double[] knockbackVelX;
+    double[] knockbackVelY;
+    int[] knockbackDelay;
+    double[] dashVelX;
+    double[] dashVelY;
+    int[] dashSteps;
+    int[] dashCooldown;
+    int[] inputSeq;
+    int[] attackSeq;
+    int[] viewLag;
+    long[] deathTime;
+    
+    private final int[] slotOfId;
+    private int[] freeSlots;
+    private int freeCount = 0;
+    private int highWater = 0;
+    private int count = 0;
+    
+    public PlayerStore(int maxId, int initialCapacity) {
+        this.slotOfId = new int[maxId + 1];
+        Arrays.fill(slotOfId, -1);
+        allocate(Math.max(1, initialCapacity));
+    }
+    
+    public int add(GameServer.PlayerData player) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (highWater == ids.length) {
+                allocate(ids.length * 2);
+            }
+            slot = highWater++;
+        }
+        
+        ids[slot] = player.id;
+        skinIds[slot] = player.skinId;
+        names[slot] = player.name;
+        nameBytes[slot] = String.valueOf(player.name).getBytes();
+        x[slot] = player.x;
+        y[slot] = player.y;
+        angle[slot] = player.angle;
+        flags[slot] = (byte) BinaryProtocol.flags(player.isAttacking, player.isDashing);
+        lastAttackTime[slot] = player.lastAttackTime;
+        health[slot] = player.health;
+        killCount[slot] = player.killCount;
+        knockbackVelX[slot] = 0;
+        knockbackVelY[slot] = 0;
+        knockbackDelay[slot] = 0;
+        dashVelX[slot] = 0;
+        dashVelY[slot] = 0;
+        dashSteps[slot] = 0;
+        dashCooldown[slot] = 0;
+        inputSeq[slot] = 0;
+        attackSeq[slot] = 0;
+        viewLag[slot] = 0;
+        deathTime[slot] = 0;
+        slotOfId[player.id] = slot;
+        count++;
+        return slot;
+    }
+    
+    public void remove(int slot) {
+        int id = ids[slot];
+        if (id == 0) {
+            return;
+        }
+        if (slotOfId[id] == slot) {
+            slotOfId[id] = -1;
+        }
+        ids[slot] = 0;
+        names[slot] = null;
+        nameBytes[slot] = null;
+        freeSlots[freeCount++] = slot;
+        count--;
+    }
+    
+    public int slotOf(int id) {
+        return id > 0 && id < slotOfId.length ? slotOfId[id] : -1;
+    }
+    
+    public boolean isActive(int slot) {
+        return ids[slot] != 0;
+    }
+    
+    public int getHighWater() {
+        return highWater;
+    }
+    
+    public int size() {
+        return count;
+    }
+    
+    public boolean isAttacking(int slot) {
+        return (flags[slot] & BinaryProtocol.FLAG_ATTACKING) != 0;
+    }
+    
+    public boolean isDashing(int slot) {
+        return (flags[slot] & BinaryProtocol.FLAG_DASHING) != 0;
+    }
+    
+    public GameServer.PlayerData view(int slot, GameServer.PlayerData view) {
+        view.id = ids[slot];
+        view.skinId = skinIds[slot];
+        view.name = names[slot];
+        view.x = x[slot];
+        view.y = y[slot];
+        view.angle = angle[slot];
+        view.isAttacking = isAttacking(slot);
+        view.isDashing = isDashing(slot);
+        view.lastAttackTime = lastAttackTime[slot];
+        view.health = health[slot];
+        view.killCount = killCount[slot];
+        return view;
+    }
+    
+    private void allocate(int capacity) {
+        ids = ids == null ? new int[capacity] : Arrays.copyOf(ids, capacity);
+        skinIds = skinIds == null ? new int[capacity] : Arrays.copyOf(skinIds, capacity);
+        names = names == null ? new String[capacity] : Arrays.copyOf(names, capacity);
+        nameBytes = nameBytes == null ? new byte[capacity][] : Arrays.copyOf(nameBytes, capacity);
+        x = x == null ? new double[capacity] : Arrays.copyOf(x, capacity);
+        y = y == null ? new double[capacity] : Arrays.copyOf(y, capacity);
+        angle = angle == null ? new double[capacity] : Arrays.copyOf(angle, capacity);
+        flags = flags == null ? new byte[capacity] : Arrays.copyOf(flags, capacity);
+        lastAttackTime = lastAttackTime == null ? new long[capacity] : Arrays.copyOf(lastAttackTime, capacity);
+        health = health == null ? new int[capacity] : Arrays.copyOf(health, capacity);
+        killCount = killCount == null ? new int[capacity] : Arrays.copyOf(killCount, capacity);
+        knockbackVelX = knockbackVelX == null ? new double[capacity] : Arrays.copyOf(knockbackVelX, capacity);
+        knockbackVelY = knockbackVelY == null ? new double[capacity] : Arrays.copyOf(knockbackVelY, capacity);
+        knockbackDelay = knockbackDelay == null ? new int[capacity] : Arrays.copyOf(knockbackDelay, capacity);
+        dashVelX = dashVelX == null ? new double[capacity] : Arrays.copyOf(dashVelX, capacity);
+        dashVelY = dashVelY == null ? new double[capacity] : Arrays.copyOf(dashVelY, capacity);
+        dashSteps = dashSteps == null ? new int[capacity] : Arrays.copyOf(dashSteps, capacity);
+        dashCooldown = dashCooldown == null ? new int[capacity] : Arrays.copyOf(dashCooldown, capacity);
+        inputSeq = inputSeq == null ? new int[capacity] : Arrays.copyOf(inputSeq, capacity);
+        attackSeq = attackSeq == null ? new int[capacity] : Arrays.copyOf(attackSeq, capacity);
+        viewLag = viewLag == null ? new int[capacity] : Arrays.copyOf(viewLag, capacity);
+        deathTime = deathTime == null ? new long[capacity] : Arrays.copyOf(deathTime, capacity);
+        freeSlots = freeSlots == null ? new int[capacity] : Arrays.copyOf(freeSlots, capacity);
+    }
+}
@@ -0,0 +1,77 @@
+import java.util.Arrays;
+
+public class PositionHistory {
+    private final int depth;
+    private long[] times;
+    private double[] xs;
+    private double[] ys;
+    private int[] heads;
+    private int[] counts;
+    
+    double x, y;
+    
+    public PositionHistory(int depth, int initialCapacity) {
+        this.depth = depth;
+        allocate(Math.max(1, initialCapacity));
+    }
+    
+    public void clear(int slot) {
+        ensureCapacity(slot);
+        heads[slot] = 0;
+        counts[slot] = 0;
+    }
+    
+    public void record(int slot, long time, double x, double y) {
+        ensureCapacity(slot);
+        int i = slot * depth + heads[slot];
+        times[i] = time;
+        xs[i] = x;
+        ys[i] = y;
+        heads[slot] = (heads[slot] + 1) % depth;
+        if (counts[slot] < depth) {
+            counts[slot]++;
+        }
+    }
+    
+    public boolean sample(int slot, long time) {
+        int count = slot < counts.length ? counts[slot] : 0;
+        if (count == 0) {
+            return false;
+        }
+        int base = slot * depth;
+        int newer = base + (heads[slot] + depth - 1) % depth;
+        if (time >= times[newer]) {
+            x = xs[newer];
+            y = ys[newer];
+            return true;
+        }
+        for (int n = 1; n < count; n++) {
+            int older = base + (heads[slot] + depth - 1 - n) % depth;
+            if (times[older] <= time) {
+                long span = times[newer] - times[older];
+                double t = span > 0 ? (double) (time - times[older]) / span : 1;
+                x = xs[older] + (xs[newer] - xs[older]) * t;
+                y = ys[older] + (ys[newer] - ys[older]) * t;
+                return true;
+            }
+            newer = older;
+        }
+        x = xs[newer];
+        y = ys[newer];
+        return true;
+    }
+    
+    private void ensureCapacity(int slot) {
+        if (slot >= heads.length) {
+            allocate(Math.max(slot + 1, heads.length * 2));
+        }
+    }
+    
+    private void allocate(int capacity) {
+        times = times == null ? new long[capacity * depth] : Arrays.copyOf(times, capacity * depth);
+        xs = xs == null ? new double[capacity * depth] : Arrays.copyOf(xs, capacity * depth);
+        ys = ys == null ? new double[capacity * depth] : Arrays.copyOf(ys, capacity * depth);
+        heads = heads == null ? new int[capacity] : Arrays.copyOf(heads, capacity);
+        counts = counts == null ? new int[capacity] : Arrays.copyOf(counts, capacity);
+    }
+}
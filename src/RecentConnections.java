@@ -0,0 +1,53 @@
+import java.util.HashMap;
+
+public class RecentConnections {
+    private final long ttl;
+    private final int generationSize;
+    private HashMap<String, Long> current = new HashMap<>();
+    private HashMap<String, Long> previous = new HashMap<>();
+    private long generationStart = System.currentTimeMillis();
+    
+    public RecentConnections(long ttl, int maxEntries) {
+        this.ttl = ttl;
+        this.generationSize = Math.max(1, maxEntries / 2);
+    }
+    
+    public synchronized boolean isRecent(String key, long now) {
+        expire(now);
+        Long last = current.get(key);
+        if (last == null) {
+            last = previous.get(key);
+        }
+        return last != null && now - last < ttl;
+    }
+    
+    public synchronized void record(String key, long now) {
+        expire(now);
+        if (current.size() >= generationSize && !current.containsKey(key)) {
+            rotate(now);
+        }
+        current.put(key, now);
+    }
+    
+    public synchronized int size() {
+        return current.size() + previous.size();
+    }
+    
+    private void expire(long now) {
+        if (now - generationStart >= 2 * ttl) {
+            previous.clear();
+            current.clear();
+            generationStart = now;
+        } else if (now - generationStart >= ttl) {
+            rotate(now);
+        }
+    }
+    
+    private void rotate(long now) {
+        HashMap<String, Long> recycled = previous;
+        recycled.clear();
+        previous = current;
+        current = recycled;
+        generationStart = now;
+    }
+}
@@ -1,9 +1,5 @@
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
-import javax.imageio.ImageIO;
-import javax.sound.sampled.*;
 
 public class RemotePlayer {
     private final int id;
@@ -21,18 +17,16 @@ public class RemotePlayer {
     private int killCount = 0;
     
     private double targetX, targetY, targetAngle;
-    private double moveSpeed = 0.15;
+    private final long[] sampleTime = new long[Config.INTERPOLATION_BUFFER_SIZE];
+    private final double[] sampleX = new double[Config.INTERPOLATION_BUFFER_SIZE];
+    private final double[] sampleY = new double[Config.INTERPOLATION_BUFFER_SIZE];
+    private final double[] sampleAngle = new double[Config.INTERPOLATION_BUFFER_SIZE];
+    private int sampleHead = 0;
+    private int sampleCount = 0;
     private long attackEndTime = 0;
     private long attackRecoveryDelay = 300;
-    private double knockbackVelX = 0;
-    private double knockbackVelY = 0;
-    private long knockbackStartTime = 0;
     public ParticleManager particleManager;
-    private Clip damagedClip;
-    private Clip deathClip;
     private boolean isDashing = false;
-    private double dashVelX = 0;
-    private double dashVelY = 0;
     private long dashStartTime = 0;
     private long lastDashTime = 0;
     private long deathTime = 0;
@@ -55,58 +49,14 @@ public class RemotePlayer {
     }
     
     private void loadAnimations() {
-        try {
-            String skinPath = skinId == 1 ? "assets/player/skin_1/" : "assets/player/skin_2/";
-            
-            BufferedImage[] walkFrames = new BufferedImage[1];
-            walkFrames[0] = ImageIO.read(new File(skinPath + "skins-sheet2-0.png"));
-            walkAnimation = new Animation(walkFrames, Config.WALK_ANIMATION_DELAY);
-            
-            BufferedImage[] attackFrames;
-            if (skinId == 1) {
-                attackFrames = new BufferedImage[6];
-                attackFrames[0] = ImageIO.read(new File(skinPath + "skins-sheet2-0.png"));
-                attackFrames[1] = ImageIO.read(new File(skinPath + "skins-sheet2-1.png"));
-                attackFrames[2] = ImageIO.read(new File(skinPath + "skins-sheet2-2.png"));
-                attackFrames[3] = ImageIO.read(new File(skinPath + "skins-sheet2-3.png"));
-                attackFrames[4] = ImageIO.read(new File(skinPath + "skins-sheet2-3.png"));
-                attackFrames[5] = ImageIO.read(new File(skinPath + "skins-sheet2-3.png"));
-            } else {
-                attackFrames = new BufferedImage[11];
-                attackFrames[0] = ImageIO.read(new File(skinPath + "skins-sheet2-0.png"));
-                attackFrames[1] = ImageIO.read(new File(skinPath + "skins-sheet2-1.png"));
-                attackFrames[2] = ImageIO.read(new File(skinPath + "skins-sheet2-2.png"));
-                attackFrames[3] = ImageIO.read(new File(skinPath + "skins-sheet2-3.png"));
-                attackFrames[4] = ImageIO.read(new File(skinPath + "skins-sheet2-4.png"));
-                attackFrames[5] = ImageIO.read(new File(skinPath + "skins-sheet2-4.png"));
-                attackFrames[6] = ImageIO.read(new File(skinPath + "skins-sheet2-4.png"));
-                attackFrames[7] = ImageIO.read(new File(skinPath + "skins-sheet2-4.png"));
-                attackFrames[8] = ImageIO.read(new File(skinPath + "skins-sheet2-4.png"));
-                attackFrames[9] = ImageIO.read(new File(skinPath + "skins-sheet2-4.png"));
-                attackFrames[10] = ImageIO.read(new File(skinPath + "skins-sheet2-4.png"));
-            }
-            
-            attackAnimation = new Animation(attackFrames, Config.ATTACK_ANIMATION_DELAY);
-            
-            particleManager = new ParticleManager();
-            
-            try {
-                AudioInputStream damagedStream = AudioSystem.getAudioInputStream(new File("assets/sfx/damaged.wav"));
-                damagedClip = AudioSystem.getClip();
-                damagedClip.open(damagedStream);
-                
-                AudioInputStream deathStream = AudioSystem.getAudioInputStream(new File("assets/sfx/death.wav"));
-                deathClip = AudioSystem.getClip();
-                deathClip.open(deathStream);
-            } catch (IOException | UnsupportedAudioFileException | LineUnavailableException e) {
-                e.printStackTrace();
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        walkAnimation = new Animation(AnimationLibrary.walkFrames(skinId), Config.WALK_ANIMATION_DELAY);
+        attackAnimation = new Animation(AnimationLibrary.attackFrames(skinId), Config.ATTACK_ANIMATION_DELAY);
+        
+        particleManager = new ParticleManager();
     }
     
-    public void update(double newX, double newY, double newAngle, boolean isAttacking, boolean isDashing) {
+    public void update(long snapshotTime, double newX, double newY, double newAngle, boolean isAttacking, boolean isDashing) {
+        addSample(snapshotTime, newX, newY, newAngle);
         targetX = newX;
         targetY = newY;
         targetAngle = newAngle;
@@ -122,9 +72,6 @@ public class RemotePlayer {
             this.isDashing = true;
             this.dashStartTime = System.currentTimeMillis();
             this.lastDashTime = System.currentTimeMillis();
-          
-            this.dashVelX = Math.cos(this.angle) * Config.DASH_DISTANCE;
-            this.dashVelY = Math.sin(this.angle) * Config.DASH_DISTANCE;
         }
         
         double distance = Math.sqrt((targetX - x) * (targetX - x) + (targetY - y) * (targetY - y));
@@ -144,56 +91,97 @@ public class RemotePlayer {
         }
     }
     
-    public void interpolateMove() {
-        applyKnockback();
+    public void step() {
         applyDash();
-        
-        if (!isAttacking && !isDashing) {
-            double lerpX = x + (targetX - x) * moveSpeed;
-            double lerpY = y + (targetY - y) * moveSpeed;
-            this.angle += (targetAngle - this.angle) * moveSpeed;
-            
-            this.x = lerpX;
-            this.y = lerpY;
-        } else {
-            this.x = targetX;
-            this.y = targetY;
-            this.angle = targetAngle;
-        }
     }
     
-    private void applyKnockback() {
-        if (knockbackVelX != 0 || knockbackVelY != 0) {
-            long currentTime = System.currentTimeMillis();
-            long knockbackElapsed = currentTime - knockbackStartTime;
-            
-            if (knockbackElapsed >= 100) {
-                double newX = x + knockbackVelX;
-                double newY = y + knockbackVelY;
-                
-                newX = Math.max(Config.PLAYER_SIZE/2, Math.min(Config.MAP_WIDTH - Config.PLAYER_SIZE/2, newX));
-                newY = Math.max(Config.PLAYER_SIZE/2, Math.min(Config.MAP_HEIGHT - Config.PLAYER_SIZE/2, newY));
-                
-                this.x = newX;
-                this.y = newY;
+    public void interpolateMove() {
+        sample(System.currentTimeMillis() - Config.INTERPOLATION_DELAY);
+    }
+    
+    private synchronized void addSample(long time, double newX, double newY, double newAngle) {
+        int last = (sampleHead + sampleTime.length - 1) % sampleTime.length;
+        if (sampleCount > 0 && time <= sampleTime[last]) {
+            if (time < sampleTime[last]) {
+                return;
             }
-            
-            knockbackVelX *= 0.7;
-            knockbackVelY *= 0.7;
-            
-            if (Math.abs(knockbackVelX) < 0.1) knockbackVelX = 0;
-            if (Math.abs(knockbackVelY) < 0.1) knockbackVelY = 0;
+            sampleHead = last;
+            sampleCount--;
         }
+        sampleTime[sampleHead] = time;
+        sampleX[sampleHead] = newX;
+        sampleY[sampleHead] = newY;
+        sampleAngle[sampleHead] = newAngle;
+        sampleHead = (sampleHead + 1) % sampleTime.length;
+        sampleCount = Math.min(sampleCount + 1, sampleTime.length);
+    }
+    
+    private int sampleIndex(int i) {
+        return (sampleHead - sampleCount + i + sampleTime.length) % sampleTime.length;
     }
     
-    public void applyKnockbackFrom(double attackerX, double attackerY, double force) {
-        double dxToAttacker = attackerX - x;
-        double dyToAttacker = attackerY - y;
-        double angleToAttacker = Math.atan2(dyToAttacker, dxToAttacker);
+    private synchronized void sample(long renderTime) {
+        if (sampleCount == 0) {
+            return;
+        }
+        int newest = sampleIndex(sampleCount - 1);
+        if (renderTime >= sampleTime[newest]) {
+            x = sampleX[newest];
+            y = sampleY[newest];
+            angle = sampleAngle[newest];
+            if (sampleCount > 1) {
+                int previous = sampleIndex(sampleCount - 2);
+                double dt = sampleTime[newest] - sampleTime[previous];
+                double ahead = Math.min(renderTime - sampleTime[newest], Config.MAX_EXTRAPOLATION);
+                x += (sampleX[newest] - sampleX[previous]) / dt * ahead;
+                y += (sampleY[newest] - sampleY[previous]) / dt * ahead;
+            }
+            return;
+        }
+        if (sampleCount == 1) {
+            x = sampleX[newest];
+            y = sampleY[newest];
+            angle = sampleAngle[newest];
+            return;
+        }
         
-        knockbackVelX = -Math.cos(angleToAttacker) * force;
-        knockbackVelY = -Math.sin(angleToAttacker) * force;
-        knockbackStartTime = System.currentTimeMillis();
+        int i = sampleCount - 2;
+        while (i > 0 && sampleTime[sampleIndex(i)] > renderTime) {
+            i--;
+        }
+        int a = sampleIndex(i);
+        int b = sampleIndex(i + 1);
+        if (renderTime <= sampleTime[a]) {
+            x = sampleX[a];
+            y = sampleY[a];
+            angle = sampleAngle[a];
+            return;
+        }
+        
+        double dt = sampleTime[b] - sampleTime[a];
+        double s = (renderTime - sampleTime[a]) / dt;
+        double turn = Math.atan2(Math.sin(sampleAngle[b] - sampleAngle[a]), Math.cos(sampleAngle[b] - sampleAngle[a]));
+        angle = sampleAngle[a] + turn * s;
+        if (!Config.INTERPOLATION_HERMITE) {
+            x = sampleX[a] + (sampleX[b] - sampleX[a]) * s;
+            y = sampleY[a] + (sampleY[b] - sampleY[a]) * s;
+            return;
+        }
+        
+        int before = i > 0 ? sampleIndex(i - 1) : a;
+        int after = i + 2 < sampleCount ? sampleIndex(i + 2) : b;
+        double s2 = s * s;
+        double s3 = s2 * s;
+        double h00 = 2 * s3 - 3 * s2 + 1;
+        double h10 = s3 - 2 * s2 + s;
+        double h01 = -2 * s3 + 3 * s2;
+        double h11 = s3 - s2;
+        double tangentA = dt / (sampleTime[b] - sampleTime[before]);
+        double tangentB = dt / (sampleTime[after] - sampleTime[a]);
+        x = h00 * sampleX[a] + h10 * (sampleX[b] - sampleX[before]) * tangentA
+            + h01 * sampleX[b] + h11 * (sampleX[after] - sampleX[a]) * tangentB;
+        y = h00 * sampleY[a] + h10 * (sampleY[b] - sampleY[before]) * tangentA
+            + h01 * sampleY[b] + h11 * (sampleY[after] - sampleY[a]) * tangentB;
     }
     
     public void render(Graphics2D g2d) {
@@ -213,20 +201,12 @@ public class RemotePlayer {
         }
         
         if (currentFrame != null) {
-            int scaledWidth = Config.PLAYER_SIZE;
-            int scaledHeight = Config.PLAYER_SIZE;
-            
             double bobY = 0;
             if (isMoving) {
                 bobY = Math.sin(bobOffset) * Config.BOB_AMPLITUDE;
             }
             
-            Graphics2D g2dCopy = (Graphics2D) g2d.create();
-            g2dCopy.translate(x, y + bobY);
-            g2dCopy.rotate(angle);
-            g2dCopy.translate(-scaledWidth / 2, -scaledHeight / 2);
-            g2dCopy.drawImage(currentFrame, 0, 0, scaledWidth, scaledHeight, null);
-            g2dCopy.dispose();
+            RotatedSpriteCache.drawRotated(g2d, currentFrame, Config.PLAYER_SIZE, angle, x, y + bobY);
             
             renderPlayerInfo(g2d, bobY);
         }
@@ -323,14 +303,10 @@ public class RemotePlayer {
         health -= damage;
         if (health < 0) health = 0;
         
-        if (damagedClip != null && health > 0) {
-            damagedClip.setFramePosition(0);
-            damagedClip.start();
-        }
-        
-        if (deathClip != null && health <= 0 && oldHealth > 0) {
-            deathClip.setFramePosition(0);
-            deathClip.start();
+        if (health > 0) {
+            AudioMixer.play("assets/sfx/damaged.wav", 1.0f, AudioMixer.PRIORITY_LOW);
+        } else if (oldHealth > 0) {
+            AudioMixer.play("assets/sfx/death.wav", 1.0f, AudioMixer.PRIORITY_NORMAL);
         }
     }
     
@@ -362,11 +338,12 @@ public class RemotePlayer {
         this.health = health;
     }
     
-    public void revive() {
+    public synchronized void revive() {
         this.health = Config.MAX_HEALTH;
         this.deathTime = 0;
         this.x = Config.MAP_WIDTH / 2;
         this.y = Config.MAP_HEIGHT / 2;
+        sampleCount = Math.min(sampleCount, 1);
     }
     
     public int getKillCount() {
@@ -387,18 +364,7 @@ public class RemotePlayer {
             long dashElapsed = currentTime - dashStartTime;
             
             if (dashElapsed >= 150) { 
-                double newX = x + dashVelX;
-                double newY = y + dashVelY;
-         
-                newX = Math.max(Config.PLAYER_SIZE/2, Math.min(Config.MAP_WIDTH - Config.PLAYER_SIZE/2, newX));
-                newY = Math.max(Config.PLAYER_SIZE/2, Math.min(Config.MAP_HEIGHT - Config.PLAYER_SIZE/2, newY));
-                
-                x = newX;
-                y = newY;
-                
                 isDashing = false;
-                dashVelX = 0;
-                dashVelY = 0;
             }
         }
     }
@@ -0,0 +1,122 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class RotatedSpriteCache {
+    private static final int UNROTATED = -1;
+    
+    private static final Map<Key, BufferedImage> baked = new LinkedHashMap<>(256, 0.75f, true);
+    private static final Key lookup = new Key();
+    private static long bytes = 0;
+    private static long hits = 0;
+    private static long misses = 0;
+    private static GraphicsConfiguration graphicsConfiguration;
+    
+    public static void drawRotated(Graphics2D g2d, BufferedImage frame, int size, double angle, double centerX, double centerY) {
+        BufferedImage image = get(frame, size, bucket(angle));
+        g2d.drawImage(image, (int) Math.round(centerX - image.getWidth() / 2.0), (int) Math.round(centerY - image.getHeight() / 2.0), null);
+    }
+    
+    public static void drawScaled(Graphics2D g2d, BufferedImage frame, int size, int drawX, int drawY) {
+        g2d.drawImage(get(frame, size, UNROTATED), drawX, drawY, null);
+    }
+    
+    private static int bucket(double angle) {
+        double turns = angle / (2 * Math.PI);
+        turns -= Math.floor(turns);
+        return (int) Math.round(turns * Config.SPRITE_ROTATION_BUCKETS) % Config.SPRITE_ROTATION_BUCKETS;
+    }
+    
+    private static synchronized BufferedImage get(BufferedImage frame, int size, int bucket) {
+        lookup.set(frame, size, bucket);
+        BufferedImage image = baked.get(lookup);
+        if (image != null) {
+            hits++;
+            return image;
+        }
+        misses++;
+        image = bake(frame, size, bucket);
+        Key key = new Key();
+        key.set(frame, size, bucket);
+        baked.put(key, image);
+        bytes += SpriteCache.sizeOf(image);
+        
+        Iterator<Map.Entry<Key, BufferedImage>> eldest = baked.entrySet().iterator();
+        while (bytes > Config.SPRITE_CACHE_MAX_BYTES && baked.size() > 1) {
+            BufferedImage evicted = eldest.next().getValue();
+            eldest.remove();
+            bytes -= SpriteCache.sizeOf(evicted);
+            evicted.flush();
+        }
+        return image;
+    }
+    
+    private static BufferedImage bake(BufferedImage frame, int size, int bucket) {
+        int canvas = bucket == UNROTATED ? size : (int) Math.ceil(size * Math.sqrt(2));
+        BufferedImage image = createImage(canvas);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g2d.translate(canvas / 2.0, canvas / 2.0);
+        if (bucket != UNROTATED) {
+            g2d.rotate(bucket * 2 * Math.PI / Config.SPRITE_ROTATION_BUCKETS);
+        }
+        g2d.translate(-size / 2.0, -size / 2.0);
+        g2d.drawImage(frame, 0, 0, size, size, null);
+        g2d.dispose();
+        return image;
+    }
+    
+    private static BufferedImage createImage(int size) {
+        if (graphicsConfiguration == null && !GraphicsEnvironment.isHeadless()) {
+            graphicsConfiguration = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDefaultConfiguration();
+        }
+        if (graphicsConfiguration != null) {
+            return graphicsConfiguration.createCompatibleImage(size, size, Transparency.TRANSLUCENT);
+        }
+        return new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB_PRE);
+    }
+    
+    public static synchronized long getHits() {
+        return hits;
+    }
+    
+    public static synchronized long getMisses() {
+        return misses;
+    }
+    
+    public static synchronized long getBytes() {
+        return bytes;
+    }
+    
+    public static synchronized int size() {
+        return baked.size();
+    }
+    
+    private static class Key {
+        BufferedImage frame;
+        int size;
+        int bucket;
+        
+        void set(BufferedImage frame, int size, int bucket) {
+            this.frame = frame;
+            this.size = size;
+            this.bucket = bucket;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return frame == other.frame && size == other.size && bucket == other.bucket;
+        }
+        
+        @Override
+        public int hashCode() {
+            return (System.identityHashCode(frame) * 31 + size) * 31 + bucket;
+        }
+    }
+}
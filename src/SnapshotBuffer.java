@@ -0,0 +1,59 @@
+import java.util.Arrays;
+import java.util.List;
+
+public class SnapshotBuffer {
+    private GameServer.PlayerData[] pending = new GameServer.PlayerData[0];
+    private GameServer.PlayerData[] ready = new GameServer.PlayerData[0];
+    private int pendingCount = 0;
+    private int readyCount = 0;
+    private long pendingTime;
+    private long readyTime;
+    private boolean fresh = false;
+    
+    public synchronized void publish(List<GameServer.PlayerData> players, long snapshotTime) {
+        int count = players.size();
+        pending = ensureCapacity(pending, count);
+        for (int i = 0; i < count; i++) {
+            pending[i].set(players.get(i));
+        }
+        pendingCount = count;
+        pendingTime = snapshotTime;
+        fresh = true;
+    }
+    
+    public synchronized boolean take() {
+        if (!fresh) {
+            return false;
+        }
+        GameServer.PlayerData[] swapped = ready;
+        ready = pending;
+        pending = swapped;
+        readyCount = pendingCount;
+        readyTime = pendingTime;
+        fresh = false;
+        return true;
+    }
+    
+    public GameServer.PlayerData get(int index) {
+        return ready[index];
+    }
+    
+    public int size() {
+        return readyCount;
+    }
+    
+    public long getSnapshotTime() {
+        return readyTime;
+    }
+    
+    private static GameServer.PlayerData[] ensureCapacity(GameServer.PlayerData[] players, int count) {
+        if (players.length >= count) {
+            return players;
+        }
+        GameServer.PlayerData[] grown = Arrays.copyOf(players, Math.max(count, players.length * 2));
+        for (int i = players.length; i < grown.length; i++) {
+            grown[i] = new GameServer.PlayerData(0, 0, 0, 0, null);
+        }
+        return grown;
+    }
+}
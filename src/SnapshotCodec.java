@@ -0,0 +1,355 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class SnapshotCodec {
+    public static final int HISTORY_SIZE = 64;
+    
+    private static final byte RECORD_SPAWN = 1;
+    private static final byte RECORD_UPDATE = 2;
+    private static final byte RECORD_DESPAWN = 3;
+    
+    private static final int FIELD_X = 1;
+    private static final int FIELD_Y = 2;
+    private static final int FIELD_ANGLE = 4;
+    private static final int FIELD_FLAGS = 8;
+    private static final int FIELD_ATTACK_TIME = 16;
+    private static final int FIELD_HEALTH = 32;
+    private static final int FIELD_KILLS = 64;
+    private static final int FIELD_IDENTITY = 128;
+    
+    private static final int HEADER_SIZE = BinaryProtocol.LENGTH_SIZE + 1 + 4 + 4 + 4 + 2;
+    private static final int FULL_RECORD_SIZE = 24;
+    private static final Snapshot EMPTY = new Snapshot(0, 0, new EntityState[0]);
+    
+    public static class EntityState {
+        final int id;
+        final int skinId;
+        final int x, y;
+        final int angle;
+        final int flags;
+        final long lastAttackTime;
+        final int health;
+        final int killCount;
+        final String name;
+        final byte[] nameBytes;
+        
+        EntityState(int id, int skinId, int x, int y, int angle, int flags, long lastAttackTime,
+                    int health, int killCount, String name, byte[] nameBytes) {
+            this.id = id;
+            this.skinId = skinId;
+            this.x = x;
+            this.y = y;
+            this.angle = angle;
+            this.flags = flags;
+            this.lastAttackTime = lastAttackTime;
+            this.health = health;
+            this.killCount = killCount;
+            this.name = name;
+            this.nameBytes = nameBytes;
+        }
+        
+        static EntityState capture(PlayerStore store, int slot, EntityState previous) {
+            int id = store.ids[slot];
+            int skinId = store.skinIds[slot];
+            String name = store.names[slot];
+            int x = BinaryProtocol.quantizePosition(store.x[slot]);
+            int y = BinaryProtocol.quantizePosition(store.y[slot]);
+            int angle = BinaryProtocol.quantizeAngle(store.angle[slot]);
+            int flags = store.flags[slot];
+            long lastAttackTime = store.lastAttackTime[slot];
+            int health = store.health[slot];
+            int killCount = store.killCount[slot];
+            
+            if (previous != null && previous.name.equals(name)) {
+                if (previous.skinId == skinId && previous.x == x && previous.y == y
+                        && previous.angle == angle && previous.flags == flags
+                        && previous.lastAttackTime == lastAttackTime
+                        && previous.health == health && previous.killCount == killCount) {
+                    return previous;
+                }
+                return new EntityState(id, skinId, x, y, angle, flags, lastAttackTime,
+                    health, killCount, previous.name, previous.nameBytes);
+            }
+            return new EntityState(id, skinId, x, y, angle, flags, lastAttackTime,
+                health, killCount, name, BinaryProtocol.encodeName(name));
+        }
+        
+        int fullSize() {
+            return FULL_RECORD_SIZE + nameBytes.length;
+        }
+        
+        public GameServer.PlayerData copyTo(GameServer.PlayerData playerData) {
+            playerData.id = id;
+            playerData.skinId = skinId;
+            playerData.name = name;
+            playerData.x = BinaryProtocol.dequantizePosition(x);
+            playerData.y = BinaryProtocol.dequantizePosition(y);
+            playerData.angle = BinaryProtocol.dequantizeAngle(angle);
+            playerData.isAttacking = (flags & BinaryProtocol.FLAG_ATTACKING) != 0;
+            playerData.isDashing = (flags & BinaryProtocol.FLAG_DASHING) != 0;
+            playerData.lastAttackTime = lastAttackTime;
+            playerData.health = health;
+            playerData.killCount = killCount;
+            return playerData;
+        }
+    }
+    
+    public static class Snapshot {
+        final int seq;
+        final int serverTime;
+        final EntityState[] entities;
+        final int keyframeSize;
+        
+        Snapshot(int seq, int serverTime, EntityState[] entities) {
+            this.seq = seq;
+            this.serverTime = serverTime;
+            this.entities = entities;
+            int size = HEADER_SIZE;
+            for (EntityState entity : entities) {
+                size += entity.fullSize();
+            }
+            this.keyframeSize = size;
+        }
+        
+        public int getSeq() {
+            return seq;
+        }
+        
+        public int getServerTime() {
+            return serverTime;
+        }
+        
+        public int getKeyframeSize() {
+            return keyframeSize;
+        }
+        
+        public int size() {
+            return entities.length;
+        }
+        
+        public EntityState get(int index) {
+            return entities[index];
+        }
+        
+        public Snapshot filter(int[] ids, int count) {
+            if (count >= entities.length) {
+                return this;
+            }
+            EntityState[] visible = new EntityState[count];
+            int size = 0;
+            for (int i = 0; i < count; i++) {
+                EntityState entity = find(ids[i]);
+                if (entity != null) {
+                    visible[size++] = entity;
+                }
+            }
+            return new Snapshot(seq, serverTime, size == count ? visible : Arrays.copyOf(visible, size));
+        }
+        
+        EntityState find(int id) {
+            int low = 0;
+            int high = entities.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int midId = entities[mid].id;
+                if (midId < id) {
+                    low = mid + 1;
+                } else if (midId > id) {
+                    high = mid - 1;
+                } else {
+                    return entities[mid];
+                }
+            }
+            return null;
+        }
+    }
+    
+    public static Snapshot capture(int seq, int serverTime, PlayerStore store, Snapshot previous) {
+        EntityState[] entities = new EntityState[store.size()];
+        int count = 0;
+        for (int slot = 0; slot < store.getHighWater(); slot++) {
+            if (!store.isActive(slot)) {
+                continue;
+            }
+            EntityState old = previous != null ? previous.find(store.ids[slot]) : null;
+            entities[count++] = EntityState.capture(store, slot, old);
+        }
+        Arrays.sort(entities, 0, count, (a, b) -> Integer.compare(a.id, b.id));
+        return new Snapshot(seq, serverTime, count == entities.length ? entities : Arrays.copyOf(entities, count));
+    }
+    
+    public static int maxEncodedSize(Snapshot current, Snapshot baseline) {
+        Snapshot base = baseline != null ? baseline : EMPTY;
+        return current.keyframeSize + (current.entities.length + base.entities.length) * 4;
+    }
+    
+    public static void encode(Snapshot current, Snapshot baseline, ByteBuffer buffer) {
+        Snapshot base = baseline != null ? baseline : EMPTY;
+        int frameStart = BinaryProtocol.beginFrame(buffer, BinaryProtocol.MSG_SNAPSHOT);
+        buffer.putInt(current.seq);
+        buffer.putInt(base.seq);
+        buffer.putInt(current.serverTime);
+        int countPosition = buffer.position();
+        buffer.putShort((short) 0);
+        
+        int records = 0;
+        int c = 0;
+        int b = 0;
+        EntityState[] now = current.entities;
+        EntityState[] then = base.entities;
+        while (c < now.length || b < then.length) {
+            if (b >= then.length || (c < now.length && now[c].id < then[b].id)) {
+                writeSpawn(buffer, now[c++]);
+                records++;
+            } else if (c >= now.length || then[b].id < now[c].id) {
+                buffer.put(RECORD_DESPAWN);
+                buffer.putShort((short) then[b++].id);
+                records++;
+            } else {
+                if (writeUpdate(buffer, then[b], now[c])) {
+                    records++;
+                }
+                b++;
+                c++;
+            }
+        }
+        
+        buffer.putShort(countPosition, (short) records);
+        BinaryProtocol.endFrame(buffer, frameStart);
+    }
+    
+    private static void writeSpawn(ByteBuffer buffer, EntityState entity) {
+        buffer.put(RECORD_SPAWN);
+        buffer.putShort((short) entity.id);
+        buffer.put((byte) entity.skinId);
+        buffer.putShort((short) entity.x);
+        buffer.putShort((short) entity.y);
+        buffer.putShort((short) entity.angle);
+        buffer.put((byte) entity.flags);
+        buffer.putLong(entity.lastAttackTime);
+        buffer.putShort((short) entity.health);
+        buffer.putShort((short) entity.killCount);
+        BinaryProtocol.putName(buffer, entity.nameBytes);
+    }
+    
+    private static boolean writeUpdate(ByteBuffer buffer, EntityState old, EntityState entity) {
+        if (old == entity) {
+            return false;
+        }
+        int mask = 0;
+        if (old.x != entity.x) mask |= FIELD_X;
+        if (old.y != entity.y) mask |= FIELD_Y;
+        if (old.angle != entity.angle) mask |= FIELD_ANGLE;
+        if (old.flags != entity.flags) mask |= FIELD_FLAGS;
+        if (old.lastAttackTime != entity.lastAttackTime) mask |= FIELD_ATTACK_TIME;
+        if (old.health != entity.health) mask |= FIELD_HEALTH;
+        if (old.killCount != entity.killCount) mask |= FIELD_KILLS;
+        if (old.skinId != entity.skinId || !old.name.equals(entity.name)) mask |= FIELD_IDENTITY;
+        if (mask == 0) {
+            return false;
+        }
+        
+        buffer.put(RECORD_UPDATE);
+        buffer.putShort((short) entity.id);
+        buffer.put((byte) mask);
+        if ((mask & FIELD_X) != 0) buffer.putShort((short) entity.x);
+        if ((mask & FIELD_Y) != 0) buffer.putShort((short) entity.y);
+        if ((mask & FIELD_ANGLE) != 0) buffer.putShort((short) entity.angle);
+        if ((mask & FIELD_FLAGS) != 0) buffer.put((byte) entity.flags);
+        if ((mask & FIELD_ATTACK_TIME) != 0) buffer.putLong(entity.lastAttackTime);
+        if ((mask & FIELD_HEALTH) != 0) buffer.putShort((short) entity.health);
+        if ((mask & FIELD_KILLS) != 0) buffer.putShort((short) entity.killCount);
+        if ((mask & FIELD_IDENTITY) != 0) {
+            buffer.put((byte) entity.skinId);
+            BinaryProtocol.putName(buffer, entity.nameBytes);
+        }
+        return true;
+    }
+    
+    public static class Decoder {
+        private final Snapshot[] history = new Snapshot[HISTORY_SIZE];
+        
+        public Snapshot decode(ByteBuffer frame) {
+            int seq = frame.getInt();
+            int baselineSeq = frame.getInt();
+            int serverTime = frame.getInt();
+            int count = frame.getShort() & 0xFFFF;
+            
+            Snapshot base = EMPTY;
+            if (baselineSeq != 0) {
+                base = history[baselineSeq % HISTORY_SIZE];
+                if (base == null || base.seq != baselineSeq) {
+                    return null;
+                }
+            }
+            
+            EntityState[] then = base.entities;
+            EntityState[] now = new EntityState[then.length + count];
+            int n = 0;
+            int b = 0;
+            for (int i = 0; i < count; i++) {
+                byte type = frame.get();
+                int id = frame.getShort() & 0xFFFF;
+                while (b < then.length && then[b].id < id) {
+                    now[n++] = then[b++];
+                }
+                EntityState old = null;
+                if (b < then.length && then[b].id == id) {
+                    old = then[b++];
+                }
+                
+                if (type == RECORD_SPAWN) {
+                    now[n++] = readSpawn(frame, id);
+                } else if (type == RECORD_UPDATE) {
+                    if (old == null) {
+                        return null;
+                    }
+                    now[n++] = readUpdate(frame, old);
+                } else if (type != RECORD_DESPAWN) {
+                    return null;
+                }
+            }
+            while (b < then.length) {
+                now[n++] = then[b++];
+            }
+            
+            Snapshot snapshot = new Snapshot(seq, serverTime, n == now.length ? now : Arrays.copyOf(now, n));
+            history[seq % HISTORY_SIZE] = snapshot;
+            return snapshot;
+        }
+        
+        private EntityState readSpawn(ByteBuffer frame, int id) {
+            int skinId = frame.get() & 0xFF;
+            int x = frame.getShort() & 0xFFFF;
+            int y = frame.getShort() & 0xFFFF;
+            int angle = frame.getShort();
+            int flags = frame.get();
+            long lastAttackTime = frame.getLong();
+            int health = frame.getShort() & 0xFFFF;
+            int killCount = frame.getShort() & 0xFFFF;
+            String name = BinaryProtocol.getName(frame);
+            return new EntityState(id, skinId, x, y, angle, flags, lastAttackTime, health, killCount,
+                name, BinaryProtocol.encodeName(name));
+        }
+        
+        private EntityState readUpdate(ByteBuffer frame, EntityState old) {
+            int mask = frame.get() & 0xFF;
+            int x = (mask & FIELD_X) != 0 ? frame.getShort() & 0xFFFF : old.x;
+            int y = (mask & FIELD_Y) != 0 ? frame.getShort() & 0xFFFF : old.y;
+            int angle = (mask & FIELD_ANGLE) != 0 ? frame.getShort() : old.angle;
+            int flags = (mask & FIELD_FLAGS) != 0 ? frame.get() : old.flags;
+            long lastAttackTime = (mask & FIELD_ATTACK_TIME) != 0 ? frame.getLong() : old.lastAttackTime;
+            int health = (mask & FIELD_HEALTH) != 0 ? frame.getShort() & 0xFFFF : old.health;
+            int killCount = (mask & FIELD_KILLS) != 0 ? frame.getShort() & 0xFFFF : old.killCount;
+            int skinId = old.skinId;
+            String name = old.name;
+            byte[] nameBytes = old.nameBytes;
+            if ((mask & FIELD_IDENTITY) != 0) {
+                skinId = frame.get() & 0xFF;
+                name = BinaryProtocol.getName(frame);
+                nameBytes = BinaryProtocol.encodeName(name);
+            }
+            return new EntityState(old.id, skinId, x, y, angle, flags, lastAttackTime, health, killCount, name, nameBytes);
+        }
+    }
+}
@@ -1,34 +1,17 @@
-import java.io.File;
-import javax.sound.sampled.*;
-
 public class SoundManager {
-    private static Clip buttonClip;
-    private static Clip backgroundMusicClip;
-    private static Clip teleportClip;
+    private static final MusicStream backgroundMusic = new MusicStream("assets/sfx/music.wav");
     private static boolean soundsEnabled = true;
     private static boolean musicEnabled = true;
     private static float musicVolume = 0.1f;
     
     static {
         try {
-            AudioInputStream buttonStream = AudioSystem.getAudioInputStream(new File("assets/sfx/button.wav"));
-            buttonClip = AudioSystem.getClip();
-            buttonClip.open(buttonStream);
-            
-            AudioInputStream musicStream = AudioSystem.getAudioInputStream(new File("assets/sfx/music.wav"));
-            backgroundMusicClip = AudioSystem.getClip();
-            backgroundMusicClip.open(musicStream);
-            
-            AudioInputStream teleportStream = AudioSystem.getAudioInputStream(new File("assets/sfx/teleport.wav"));
-            teleportClip = AudioSystem.getClip();
-            teleportClip.open(teleportStream);
+            AudioMixer.preload("assets/sfx/button.wav", "assets/sfx/teleport.wav");
             
             setBackgroundMusicVolume(musicVolume);
             
-            backgroundMusicClip.loop(Clip.LOOP_CONTINUOUSLY);
-            
             if (musicEnabled) {
-                backgroundMusicClip.start();
+                backgroundMusic.start();
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -38,16 +21,14 @@ public class SoundManager {
     }
     
     public static void playButtonSound() {
-        if (soundsEnabled && buttonClip != null) {
-            buttonClip.setFramePosition(0);
-            buttonClip.start();
+        if (soundsEnabled) {
+            AudioMixer.play("assets/sfx/button.wav", 1.0f, AudioMixer.PRIORITY_HIGH);
         }
     }
     
     public static void playTeleportSound() {
-        if (soundsEnabled && teleportClip != null) {
-            teleportClip.setFramePosition(0);
-            teleportClip.start();
+        if (soundsEnabled) {
+            AudioMixer.play("assets/sfx/teleport.wav", 1.0f, AudioMixer.PRIORITY_NORMAL);
         }
     }
     
@@ -61,13 +42,10 @@ public class SoundManager {
     
     public static void setMusicEnabled(boolean enabled) {
         musicEnabled = enabled;
-        if (backgroundMusicClip != null) {
-            if (enabled) {
-                backgroundMusicClip.start();
-            } else {
-                backgroundMusicClip.stop();
-                backgroundMusicClip.setFramePosition(0);
-            }
+        if (enabled) {
+            backgroundMusic.start();
+        } else {
+            backgroundMusic.stop();
         }
     }
     
@@ -77,17 +55,7 @@ public class SoundManager {
     
     public static void setBackgroundMusicVolume(float volume) {
         musicVolume = Math.max(0.0f, Math.min(1.0f, volume));
-        if (backgroundMusicClip != null) {
-            try {
-                if (backgroundMusicClip.isControlSupported(FloatControl.Type.MASTER_GAIN)) {
-                    FloatControl gainControl = (FloatControl) backgroundMusicClip.getControl(FloatControl.Type.MASTER_GAIN);
-                    float db = (float) (20.0 * Math.log10(musicVolume));
-                    gainControl.setValue(db);
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
+        backgroundMusic.setVolume(musicVolume);
     }
     
     public static float getBackgroundMusicVolume() {
@@ -95,15 +63,12 @@ public class SoundManager {
     }
     
     public static void stopBackgroundMusic() {
-        if (backgroundMusicClip != null) {
-            backgroundMusicClip.stop();
-            backgroundMusicClip.setFramePosition(0);
-        }
+        backgroundMusic.stop();
     }
     
     public static void resumeBackgroundMusic() {
-        if (backgroundMusicClip != null && musicEnabled) {
-            backgroundMusicClip.loop(Clip.LOOP_CONTINUOUSLY);
+        if (musicEnabled) {
+            backgroundMusic.start();
         }
     }
 }
@@ -0,0 +1,111 @@
+import java.util.Arrays;
+
+public class SpatialGrid {
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+    private final int[] cellHead;
+    private final int[] next;
+    private final int[] prev;
+    private final int[] cellOf;
+    private final double[] positionX;
+    private final double[] positionY;
+    
+    public SpatialGrid(double width, double height, double cellSize, int maxId) {
+        this.cellSize = cellSize;
+        this.columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        this.cellHead = new int[columns * rows];
+        this.next = new int[maxId + 1];
+        this.prev = new int[maxId + 1];
+        this.cellOf = new int[maxId + 1];
+        this.positionX = new double[maxId + 1];
+        this.positionY = new double[maxId + 1];
+        Arrays.fill(cellHead, -1);
+        Arrays.fill(cellOf, -1);
+    }
+    
+    public void update(int id, double x, double y) {
+        positionX[id] = x;
+        positionY[id] = y;
+        int cell = cellIndex(x, y);
+        int oldCell = cellOf[id];
+        if (oldCell == cell) {
+            return;
+        }
+        if (oldCell >= 0) {
+            unlink(id, oldCell);
+        }
+        
+        cellOf[id] = cell;
+        prev[id] = -1;
+        next[id] = cellHead[cell];
+        if (cellHead[cell] >= 0) {
+            prev[cellHead[cell]] = id;
+        }
+        cellHead[cell] = id;
+    }
+    
+    public void remove(int id) {
+        int cell = cellOf[id];
+        if (cell >= 0) {
+            unlink(id, cell);
+            cellOf[id] = -1;
+        }
+    }
+    
+    public boolean contains(int id) {
+        return cellOf[id] >= 0;
+    }
+    
+    public double getX(int id) {
+        return positionX[id];
+    }
+    
+    public double getY(int id) {
+        return positionY[id];
+    }
+    
+    public int query(double x, double y, double radius, int[] result) {
+        int minColumn = column(x - radius);
+        int maxColumn = column(x + radius);
+        int minRow = row(y - radius);
+        int maxRow = row(y + radius);
+        
+        int count = 0;
+        for (int r = minRow; r <= maxRow; r++) {
+            for (int c = minColumn; c <= maxColumn; c++) {
+                for (int id = cellHead[r * columns + c]; id >= 0; id = next[id]) {
+                    if (count == result.length) {
+                        return count;
+                    }
+                    result[count++] = id;
+                }
+            }
+        }
+        return count;
+    }
+    
+    private void unlink(int id, int cell) {
+        if (prev[id] >= 0) {
+            next[prev[id]] = next[id];
+        } else {
+            cellHead[cell] = next[id];
+        }
+        if (next[id] >= 0) {
+            prev[next[id]] = prev[id];
+        }
+    }
+    
+    private int cellIndex(double x, double y) {
+        return row(y) * columns + column(x);
+    }
+    
+    private int column(double x) {
+        return Math.max(0, Math.min(columns - 1, (int) Math.floor(x / cellSize)));
+    }
+    
+    private int row(double y) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor(y / cellSize)));
+    }
+}
@@ -0,0 +1,61 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.imageio.ImageIO;
+
+public class SpriteCache {
+    private static final Map<String, BufferedImage> images = new ConcurrentHashMap<>();
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong bytes = new AtomicLong();
+    
+    public static BufferedImage get(String path) {
+        BufferedImage image = images.get(path);
+        if (image != null) {
+            hits.incrementAndGet();
+            return image;
+        }
+        synchronized(images) {
+            image = images.get(path);
+            if (image != null) {
+                hits.incrementAndGet();
+                return image;
+            }
+            misses.incrementAndGet();
+            try {
+                image = ImageIO.read(new File(path));
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+            if (image != null) {
+                images.put(path, image);
+                bytes.addAndGet(sizeOf(image));
+            }
+            return image;
+        }
+    }
+    
+    static long sizeOf(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() * image.getColorModel().getPixelSize() / 8;
+    }
+    
+    public static long getHits() {
+        return hits.get();
+    }
+    
+    public static long getMisses() {
+        return misses.get();
+    }
+    
+    public static long getBytes() {
+        return bytes.get();
+    }
+    
+    public static int size() {
+        return images.size();
+    }
+}
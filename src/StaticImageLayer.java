@@ -0,0 +1,74 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+
+public class StaticImageLayer {
+    private final BufferedImage source;
+    private final int width;
+    private final int height;
+    private VolatileImage volatileImage;
+    private BufferedImage compatibleImage;
+    private boolean volatileFailed = !Config.VOLATILE_BACKGROUND;
+    
+    public StaticImageLayer(BufferedImage source, int width, int height) {
+        this.source = source;
+        this.width = width;
+        this.height = height;
+    }
+    
+    public void draw(Graphics2D g2d, int x, int y) {
+        GraphicsConfiguration gc = g2d.getDeviceConfiguration();
+        if (!volatileFailed) {
+            try {
+                for (int attempt = 0; attempt < 3; attempt++) {
+                    if (volatileImage == null) {
+                        volatileImage = gc.createCompatibleVolatileImage(width, height, source.getTransparency());
+                        renderSource(volatileImage);
+                    }
+                    int status = volatileImage.validate(gc);
+                    if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                        volatileImage.flush();
+                        volatileImage = null;
+                        continue;
+                    }
+                    if (status == VolatileImage.IMAGE_RESTORED) {
+                        renderSource(volatileImage);
+                    }
+                    g2d.drawImage(volatileImage, x, y, null);
+                    if (!volatileImage.contentsLost()) {
+                        return;
+                    }
+                }
+            } catch (RuntimeException e) {
+                System.out.println("Volatile background unavailable, using compatible image: " + e.getMessage());
+                volatileFailed = true;
+                volatileImage = null;
+            }
+        }
+        
+        if (compatibleImage == null) {
+            compatibleImage = gc.createCompatibleImage(width, height, source.getTransparency());
+            renderSource(compatibleImage);
+        }
+        g2d.drawImage(compatibleImage, x, y, null);
+    }
+    
+    private void renderSource(Image target) {
+        Graphics2D g2d = (Graphics2D) target.getGraphics();
+        g2d.setComposite(AlphaComposite.Src);
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.drawImage(source, 0, 0, width, height, null);
+        g2d.dispose();
+    }
+    
+    public void flush() {
+        if (volatileImage != null) {
+            volatileImage.flush();
+            volatileImage = null;
+        }
+        if (compatibleImage != null) {
+            compatibleImage.flush();
+            compatibleImage = null;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+import java.util.Arrays;
+import java.util.Locale;
+
+public class TextEncoder {
+    private static final double FAST_PATH_LIMIT = 1e9;
+    private static final double HALF_MARGIN = 1e-4;
+    
+    private byte[] bytes;
+    private int length = 0;
+    
+    public TextEncoder(int capacity) {
+        this.bytes = new byte[Math.max(16, capacity)];
+    }
+    
+    public TextEncoder reset() {
+        length = 0;
+        return this;
+    }
+    
+    public TextEncoder put(char c) {
+        ensure(1);
+        bytes[length++] = (byte) c;
+        return this;
+    }
+    
+    public TextEncoder put(byte[] value) {
+        ensure(value.length);
+        System.arraycopy(value, 0, bytes, length, value.length);
+        length += value.length;
+        return this;
+    }
+    
+    public TextEncoder putFlag(boolean value) {
+        return put(value ? '1' : '0');
+    }
+    
+    public TextEncoder putInt(int value) {
+        return putLong(value);
+    }
+    
+    public TextEncoder putLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            return putAscii(Long.toString(value));
+        }
+        if (value < 0) {
+            put('-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        ensure(digits);
+        for (int i = length + digits - 1; i >= length; i--) {
+            bytes[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+        return this;
+    }
+    
+    public TextEncoder putFixed1(double value) {
+        double magnitude = Math.abs(value);
+        if (!(magnitude < FAST_PATH_LIMIT)) {
+            return putAscii(String.format(Locale.ROOT, "%.1f", value));
+        }
+        double scaled = magnitude * 10;
+        double whole = Math.floor(scaled);
+        double fraction = scaled - whole;
+        if (Math.abs(fraction - 0.5) < HALF_MARGIN) {
+            return putAscii(String.format(Locale.ROOT, "%.1f", value));
+        }
+        
+        long tenths = (long) whole + (fraction > 0.5 ? 1 : 0);
+        if (Double.doubleToRawLongBits(value) < 0) {
+            put('-');
+        }
+        putLong(tenths / 10);
+        put('.');
+        return put((char) ('0' + tenths % 10));
+    }
+    
+    public TextEncoder putPlayer(int id, int skinId, double x, double y, double angle, boolean isAttacking,
+                                 long lastAttackTime, byte[] name, int health, int killCount, boolean isDashing) {
+        putInt(id).put(':').putInt(skinId).put(':');
+        putFixed1(x).put(':').putFixed1(y).put(':').putFixed1(angle).put(':');
+        putFlag(isAttacking).put(':').putLong(lastAttackTime).put(':');
+        put(name).put(':').putInt(health).put(':').putInt(killCount).put(':');
+        return putFlag(isDashing);
+    }
+    
+    public TextEncoder putState(double x, double y, double angle, boolean isAttacking, long lastAttackTime,
+                                int health, int killCount, boolean isDashing) {
+        putFixed1(x).put(':').putFixed1(y).put(':').putFixed1(angle).put(':');
+        putFlag(isAttacking).put(':').putLong(lastAttackTime).put(':');
+        putInt(health).put(':').putInt(killCount).put(':');
+        return putFlag(isDashing);
+    }
+    
+    public TextEncoder putAttack(double x, double y, double angle, int skinId) {
+        putAscii("ATTACK:");
+        putFixed1(x).put(':').putFixed1(y).put(':').putFixed1(angle).put(':');
+        return putInt(skinId);
+    }
+    
+    public byte[] array() {
+        return bytes;
+    }
+    
+    public int length() {
+        return length;
+    }
+    
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, length);
+    }
+    
+    @Override
+    public String toString() {
+        return new String(bytes, 0, length);
+    }
+    
+    private TextEncoder putAscii(String value) {
+        ensure(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            bytes[length++] = (byte) value.charAt(i);
+        }
+        return this;
+    }
+    
+    private void ensure(int extra) {
+        if (length + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(length + extra, bytes.length * 2));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class UdpTransport implements Runnable {
+    private final GameServer gameServer;
+    private final DatagramChannel channel;
+    private final Map<Integer, GameServer.ClientSession> sessions = new ConcurrentHashMap<>();
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(Config.MAX_DATAGRAM_SIZE);
+    private long staleDatagrams = 0;
+    
+    public UdpTransport(GameServer gameServer, int port) throws IOException {
+        this.gameServer = gameServer;
+        this.channel = DatagramChannel.open();
+        this.channel.bind(new InetSocketAddress(port));
+    }
+    
+    public void start() {
+        Thread thread = new Thread(this, "udp-io");
+        thread.setDaemon(true);
+        thread.start();
+        System.out.println("UDP state channel listening on port " + ((InetSocketAddress) channelAddress()).getPort());
+    }
+    
+    private SocketAddress channelAddress() {
+        try {
+            return channel.getLocalAddress();
+        } catch (IOException e) {
+            return new InetSocketAddress(0);
+        }
+    }
+    
+    void register(GameServer.ClientSession session) {
+        sessions.put(session.playerId, session);
+    }
+    
+    void unregister(GameServer.ClientSession session) {
+        sessions.remove(session.playerId, session);
+    }
+    
+    public long getStaleDatagrams() {
+        return staleDatagrams;
+    }
+    
+    boolean send(GameServer.ClientSession session, ByteBuffer frame) {
+        SocketAddress address = session.udpAddress;
+        if (address == null || frame.remaining() > Config.MAX_DATAGRAM_SIZE
+                || System.currentTimeMillis() - session.lastUdpReceiveTime > Config.UDP_TIMEOUT) {
+            return false;
+        }
+        try {
+            return channel.send(frame.duplicate(), address) > 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+    
+    @Override
+    public void run() {
+        while (gameServer.isRunning()) {
+            SocketAddress source;
+            try {
+                receiveBuffer.clear();
+                source = channel.receive(receiveBuffer);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            }
+            receiveBuffer.flip();
+            try {
+                handleDatagram(source, receiveBuffer);
+            } catch (BufferUnderflowException e) {
+            }
+        }
+    }
+    
+    private void handleDatagram(SocketAddress source, ByteBuffer datagram) {
+        int playerId = datagram.getShort() & 0xFFFF;
+        int token = datagram.getInt();
+        int seq = datagram.getInt();
+        GameServer.ClientSession session = sessions.get(playerId);
+        if (session == null || session.udpToken != token) {
+            return;
+        }
+        
+        int length = datagram.getInt();
+        if (length != datagram.remaining()) {
+            return;
+        }
+        if (datagram.get(datagram.position()) == BinaryProtocol.MSG_UDP_HELLO) {
+            session.udpAddress = source;
+            session.lastUdpReceiveTime = System.currentTimeMillis();
+            return;
+        }
+        if (seq <= session.lastUdpSeq) {
+            staleDatagrams++;
+            return;
+        }
+        session.lastUdpSeq = seq;
+        session.udpAddress = source;
+        session.lastUdpReceiveTime = System.currentTimeMillis();
+        gameServer.handleClientFrame(session, datagram.slice());
+    }
+}
@@ -0,0 +1,75 @@
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class FrameArenaRecycleTest {
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int CHUNKS = 4;
+    private static final int BROADCASTS = 20000;
+    private static final int FRAME_SIZE = 3000;
+    private static final int CLIENTS = 8;
+    
+    public static void main(String[] args) {
+        FrameArena arena = new FrameArena(CHUNK_SIZE, CHUNKS);
+        OutboundQueue[] queues = new OutboundQueue[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            queues[i] = new OutboundQueue(64, OutboundQueue.OverflowPolicy.COALESCE);
+        }
+        OutboundQueue stalled = new OutboundQueue(64, OutboundQueue.OverflowPolicy.COALESCE);
+        byte[] payload = new byte[FRAME_SIZE];
+        
+        FrameArena.Lease first = arena.begin();
+        ByteBuffer held = commitFrame(arena, payload, (byte) 1);
+        stalled.offer(held.duplicate(), false, first);
+        arena.end();
+        
+        long directBefore = directMemoryUsed();
+        for (int tick = 0; tick < BROADCASTS; tick++) {
+            byte fill = (byte) (tick % 100 + 2);
+            FrameArena.Lease lease = arena.begin();
+            ByteBuffer frame = commitFrame(arena, payload, fill);
+            for (OutboundQueue queue : queues) {
+                queue.offer(frame.duplicate(), true, lease);
+            }
+            arena.end();
+            
+            for (OutboundQueue queue : queues) {
+                ByteBuffer sent;
+                while ((sent = queue.poll()) != null) {
+                    TestChecks.check(sent.get(0) == fill && sent.get(sent.limit() - 1) == fill, "frame " + tick + " was overwritten before it was sent");
+                    queue.sent();
+                }
+            }
+            TestChecks.check(held.get(0) == 1 && held.get(held.limit() - 1) == 1, "queued frame reused at tick " + tick);
+        }
+        long directGrowth = directMemoryUsed() - directBefore;
+        
+        stalled.clear();
+        arena.begin();
+        for (int i = 0; i < CHUNK_SIZE * CHUNKS / FRAME_SIZE; i++) {
+            commitFrame(arena, payload, (byte) 0);
+        }
+        arena.end();
+        TestChecks.check(held.get(0) == 0, "chunk still pinned after its queue was cleared");
+        
+        System.out.println("direct memory growth over " + BROADCASTS + " broadcasts: " + directGrowth / 1024 + "KB");
+        TestChecks.check(directGrowth <= (long) CHUNK_SIZE * CHUNKS, "arena kept allocating chunks");
+        
+        TestChecks.finish("FrameArenaRecycleTest");
+    }
+    
+    private static ByteBuffer commitFrame(FrameArena arena, byte[] payload, byte fill) {
+        Arrays.fill(payload, fill);
+        return arena.copyOf(payload, payload.length);
+    }
+    
+    private static long directMemoryUsed() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+}
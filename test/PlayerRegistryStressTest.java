@@ -0,0 +1,121 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PlayerRegistryStressTest {
+    private static final int MAX_PLAYERS = 64;
+    private static final int JOINERS = 8;
+    private static final long DURATION = 5000;
+    
+    public static void main(String[] args) throws Exception {
+        long duration = args.length > 0 ? Long.parseLong(args[0]) : DURATION;
+        PlayerRegistry registry = new PlayerRegistry(MAX_PLAYERS);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong joins = new AtomicLong();
+        AtomicLong broadcasts = new AtomicLong();
+        AtomicLong delivered = new AtomicLong();
+        
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < JOINERS; t++) {
+            Thread joiner = new Thread(() -> {
+                List<TestSession> joined = new ArrayList<>();
+                while (running.get()) {
+                    TestSession session = new TestSession();
+                    int id = registry.reserve(session);
+                    if (id == 0) {
+                        leave(registry, joined);
+                        continue;
+                    }
+                    TestChecks.check(registry.get(id) == session, "reserved id " + id + " does not map to its session");
+                    registry.activate(session);
+                    joined.add(session);
+                    joins.incrementAndGet();
+                    if (joined.size() > MAX_PLAYERS / JOINERS) {
+                        leave(registry, joined);
+                    }
+                }
+                while (!joined.isEmpty()) {
+                    leave(registry, joined);
+                }
+            }, "joiner-" + t);
+            threads.add(joiner);
+        }
+        
+        Thread broadcaster = new Thread(() -> {
+            Set<Integer> ids = new HashSet<>();
+            while (running.get()) {
+                GameServer.ClientSession[] sessions = registry.sessions();
+                TestChecks.check(sessions.length <= MAX_PLAYERS, "snapshot holds " + sessions.length + " sessions");
+                ids.clear();
+                for (GameServer.ClientSession session : sessions) {
+                    if (session == null) {
+                        TestChecks.check(false, "snapshot contains a null session");
+                        continue;
+                    }
+                    TestChecks.check(ids.add(session.playerId), "snapshot contains duplicate id " + session.playerId);
+                    ((TestSession) session).deliveries.incrementAndGet();
+                    delivered.incrementAndGet();
+                }
+                broadcasts.incrementAndGet();
+            }
+        }, "broadcaster");
+        threads.add(broadcaster);
+        
+        for (Thread thread : threads) {
+            thread.setUncaughtExceptionHandler((failed, e) -> {
+                e.printStackTrace();
+                TestChecks.fail(failed.getName() + " died with " + e);
+            });
+            thread.start();
+        }
+        Thread.sleep(duration);
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        
+        TestChecks.check(registry.size() == 0, "registry still holds " + registry.size() + " sessions");
+        for (int id = 1; id <= MAX_PLAYERS; id++) {
+            TestChecks.check(registry.get(id) == null, "id " + id + " was never released");
+        }
+        TestChecks.check(registry.reserve(new TestSession()) != 0, "registry refuses a join after everyone left");
+        
+        System.out.println("joins " + joins + " broadcasts " + broadcasts + " deliveries " + delivered + " failures " + TestChecks.failures());
+        TestChecks.finish("PlayerRegistryStressTest");
+    }
+    
+    private static void leave(PlayerRegistry registry, List<TestSession> joined) {
+        if (joined.isEmpty()) {
+            Thread.yield();
+            return;
+        }
+        TestSession session = joined.remove(0);
+        TestChecks.check(registry.remove(session), "remove failed for id " + session.playerId);
+        TestChecks.check(!registry.remove(session), "second remove succeeded for id " + session.playerId);
+    }
+    
+    private static class TestSession extends GameServer.ClientSession {
+        final AtomicInteger deliveries = new AtomicInteger();
+        
+        TestSession() {
+            playerData = new GameServer.PlayerData(0, 0, 0, 1, "stress");
+        }
+        
+        @Override
+        void onOutboundReady() {
+        }
+        
+        @Override
+        void evict() {
+        }
+        
+        @Override
+        String getHostAddress() {
+            return "127.0.0.1";
+        }
+    }
+}
@@ -0,0 +1,97 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.List;
+
+public class ReceiveAllocationTest {
+    private static final int MESSAGES = 20000;
+    private static final int PLAYERS = 20;
+    private static final int ROUNDS = 3;
+    private static final double MAX_BYTES_PER_MESSAGE = 64;
+    private static final byte[] PLAYERS_PREFIX = "PLAYERS:".getBytes();
+    
+    public static void main(String[] args) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        
+        TextEncoder encoder = new TextEncoder(4096);
+        byte[][] names = new byte[PLAYERS + 1][];
+        for (int id = 1; id <= PLAYERS; id++) {
+            names[id] = ("player" + id).getBytes();
+        }
+        ByteArrayOutputStream stream = new ByteArrayOutputStream(MESSAGES * PLAYERS * 64);
+        double encodeBytes = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            stream.reset();
+            long before = threads.getThreadAllocatedBytes(thread);
+            for (int t = 0; t < MESSAGES; t++) {
+                encodePlayers(encoder, names, t);
+                stream.write(encoder.array(), 0, encoder.length());
+            }
+            encodeBytes = (threads.getThreadAllocatedBytes(thread) - before) / (double) MESSAGES;
+        }
+        byte[] data = stream.toByteArray();
+        
+        SnapshotBuffer snapshots = new SnapshotBuffer();
+        int[] records = {0};
+        NetworkClient client = new NetworkClient(new NetworkClient.ClientListener() {
+            @Override
+            public void onPlayerUpdate(String data) {
+            }
+            
+            @Override
+            public void onPlayersReceived(List<GameServer.PlayerData> players, long snapshotTime) {
+                snapshots.publish(players, snapshotTime);
+                if (snapshots.take()) {
+                    records[0] += snapshots.size();
+                }
+            }
+            
+            @Override
+            public void onAttackEvent(double x, double y, double angle, int skinId) {
+            }
+            
+            @Override
+            public void onConnectionLost() {
+            }
+        });
+        Field in = NetworkClient.class.getDeclaredField("in");
+        Field connected = NetworkClient.class.getDeclaredField("connected");
+        Method listenForLines = NetworkClient.class.getDeclaredMethod("listenForLines");
+        in.setAccessible(true);
+        connected.setAccessible(true);
+        listenForLines.setAccessible(true);
+        
+        double receiveBytes = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            records[0] = 0;
+            in.set(client, new ByteArrayInputStream(data));
+            connected.set(client, true);
+            long before = threads.getThreadAllocatedBytes(thread);
+            listenForLines.invoke(client);
+            receiveBytes = (threads.getThreadAllocatedBytes(thread) - before) / (double) MESSAGES;
+            TestChecks.check(records[0] == MESSAGES * PLAYERS, "round " + round + " decoded " + records[0] + " records");
+        }
+        
+        System.out.println("encode: " + encodeBytes + " bytes/message");
+        System.out.println("receive: " + receiveBytes + " bytes/message");
+        TestChecks.check(encodeBytes < MAX_BYTES_PER_MESSAGE, "encoding allocates " + encodeBytes + " bytes/message");
+        TestChecks.check(receiveBytes < MAX_BYTES_PER_MESSAGE, "receiving allocates " + receiveBytes + " bytes/message");
+        
+        TestChecks.finish("ReceiveAllocationTest");
+    }
+    
+    private static void encodePlayers(TextEncoder encoder, byte[][] names, int tick) {
+        encoder.reset().put(PLAYERS_PREFIX);
+        for (int id = 1; id <= PLAYERS; id++) {
+            if (id > 1) {
+                encoder.put(';');
+            }
+            encoder.putPlayer(id, id % 3, 100.0 + tick % 500, 200.5, 0.1 * (tick % 60), tick % 7 == 0,
+                1792270000000L + tick, names[id], 150 - tick % 150, tick / 100, false);
+        }
+        encoder.put('\n');
+    }
+}
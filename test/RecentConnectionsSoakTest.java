@@ -0,0 +1,53 @@
+public class RecentConnectionsSoakTest {
+    private static final long TTL = 5000;
+    private static final int MAX_ENTRIES = 10000;
+    private static final int KEYS = 5_000_000;
+    private static final int SAMPLES = 5;
+    private static final long MAX_HEAP_GROWTH = 16L * 1024 * 1024;
+    
+    public static void main(String[] args) {
+        int keys = args.length > 0 ? Integer.parseInt(args[0]) : KEYS;
+        RecentConnections recent = new RecentConnections(TTL, MAX_ENTRIES);
+        
+        recent.record("10.0.0.1:alice", 0);
+        TestChecks.check(recent.isRecent("10.0.0.1:alice", TTL - 1), "key forgotten inside the ttl");
+        TestChecks.check(!recent.isRecent("10.0.0.1:alice", 2 * TTL + 1), "key still recent after the ttl");
+        TestChecks.check(!recent.isRecent("10.0.0.1:bob", 1), "unknown key reported as recent");
+        
+        long now = 2 * TTL + 1;
+        int maxSize = 0;
+        long[] heap = new long[SAMPLES];
+        int perSample = keys / SAMPLES;
+        for (int i = 0; i < keys; i++) {
+            now += i % 3;
+            String key = "10.0." + (i % 255) + ":n" + i;
+            TestChecks.check(!recent.isRecent(key, now), "fresh key " + key + " reported as recent");
+            recent.record(key, now);
+            maxSize = Math.max(maxSize, recent.size());
+            if ((i + 1) % perSample == 0) {
+                heap[(i + 1) / perSample - 1] = usedHeap();
+            }
+        }
+        
+        recent.record("10.0.0.2:carol", now);
+        TestChecks.check(recent.isRecent("10.0.0.2:carol", now + 1), "key forgotten right after a flood");
+        
+        System.out.println("keys " + keys + " max size " + maxSize);
+        for (int i = 0; i < SAMPLES; i++) {
+            System.out.println("heap after " + (i + 1) * perSample + " keys: " + heap[i] / 1024 + "KB");
+        }
+        TestChecks.check(maxSize <= MAX_ENTRIES, "size reached " + maxSize + ", cap is " + MAX_ENTRIES);
+        long growth = heap[SAMPLES - 1] - heap[0];
+        TestChecks.check(growth < MAX_HEAP_GROWTH, "heap grew " + growth / 1024 + "KB between the first and last sample");
+        
+        TestChecks.finish("RecentConnectionsSoakTest");
+    }
+    
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,29 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestChecks {
+    private static final int MAX_REPORTED = 10;
+    private static final AtomicInteger failures = new AtomicInteger();
+    
+    public static void check(boolean condition, String message) {
+        if (!condition) {
+            fail(message);
+        }
+    }
+    
+    public static void fail(String message) {
+        if (failures.incrementAndGet() <= MAX_REPORTED) {
+            System.out.println("FAIL: " + message);
+        }
+    }
+    
+    public static int failures() {
+        return failures.get();
+    }
+    
+    public static void finish(String name) {
+        if (failures.get() > 0) {
+            System.exit(1);
+        }
+        System.out.println(name + " passed");
+    }
+}